@@ -0,0 +1,409 @@
+package CSC540.WolfWR;
+
+import CSC540.WolfWR.models.Member;
+import CSC540.WolfWR.models.MembershipLevel;
+import CSC540.WolfWR.models.Staff;
+import CSC540.WolfWR.services.DeliveryService;
+import CSC540.WolfWR.services.DiscountService;
+import CSC540.WolfWR.services.IdService;
+import CSC540.WolfWR.services.MerchandiseService;
+import CSC540.WolfWR.services.ProductService;
+import CSC540.WolfWR.services.TransactionService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Load large amounts of data into the database from CSV files.
+ *
+ * Each table is read from its own file in a directory, and rows are inserted with JDBC batch inserts
+ * instead of being saved one entity at a time. Rows are committed in chunks, each in its own transaction,
+ * so a failure part way through only loses the chunk being written. Tables are loaded in an order
+ * that satisfies their foreign keys, and missing files are skipped.
+ *
+ * Loading stops at the first row that cannot be read or inserted, reporting its file and line.
+ * Chunks committed before the one holding it stay in the database, so the load is partial; ID sequences
+ * and derived data are still brought up to date with what was loaded.
+ *
+ * Every file starts with a header line, which is ignored. Dates are written as yyyy-MM-dd,
+ * and empty fields are loaded as NULL. Quoted fields may contain commas and doubled quotes,
+ * but not line breaks. The expected columns are:
+ * <ul>
+ *     <li>stores.csv: storeID, managerID, address, phone</li>
+ *     <li>staff.csv: staffID, storeID, name, age, address, phone, email, employmentTime, title</li>
+ *     <li>members.csv: memberID, firstName, lastName, membershipLevel, email, phoneNo, address, isActive</li>
+ *     <li>suppliers.csv: supplierID, supplierName, phone, email, location</li>
+ *     <li>merchandise.csv: productID, storeID, supplierID, productName, quantity, buyPrice, marketPrice,
+ *     productionDate, expirationDate</li>
+ *     <li>discounts.csv: productID, discountPercentage, start, end</li>
+ *     <li>signups.csv: memberID, storeID, signUpDate</li>
+ *     <li>transactions.csv: transactionID, storeID, memberID, cashierID, purchaseDate, totalPrice</li>
+ *     <li>transaction_items.csv: transactionID, productID, quantity (optional, 1 when left out or empty)</li>
+ * </ul>
+ *
+ * @author Brandon Jiang
+ */
+@Component
+public class BulkLoader {
+
+    /** Runs batch inserts against the same connection pool as the rest of the program */
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    /** Hands out unique ID numbers, moved past the loaded IDs once loading finishes */
+    @Autowired
+    private IdService idServ;
+
+    /** Rebuilds the daily sales rollup and rewards ledger once transactions are loaded */
+    @Autowired
+    private TransactionService transServ;
+
+    /** Records loaded merchandise as deliveries if no deliveries have been recorded yet */
+    @Autowired
+    private DeliveryService deliveryServ;
+
+    /** Gives loaded merchandise the SKUs of its catalog entries */
+    @Autowired
+    private ProductService productServ;
+
+    /** Forgets the lots it has in memory once merchandise is loaded */
+    @Autowired
+    private MerchandiseService merchServ;
+
+    /** Reloads the discount index once discounts are loaded */
+    @Autowired
+    private DiscountService discountServ;
+
+    /** Runs each chunk in its own transaction */
+    private final TransactionTemplate chunkTx;
+
+    /** Number of rows inserted and committed together */
+    @Value("${wolfwr.bulk.chunk-size:5000}")
+    private int chunkSize;
+
+    /**
+     * Constructor that sets up the transaction used for each chunk
+     * @param txManager the transaction manager for the database
+     */
+    public BulkLoader(PlatformTransactionManager txManager) {
+        this.chunkTx = new TransactionTemplate(txManager);
+        this.chunkTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Load every CSV file found in a directory
+     * @param dir the directory holding the CSV files
+     * @throws LoadException if a row cannot be read or inserted. Chunks committed before it are kept
+     */
+    public void loadDirectory(Path dir) {
+        long start = System.nanoTime();
+        long rows = 0;
+        try {
+            rows = loadTables(dir);
+        } finally {
+            // Runs after a failure too, so the rows already committed get their IDs reserved and derived data
+            finishLoad();
+        }
+        report("all tables", rows, System.nanoTime() - start);
+    }
+
+    /**
+     * Load the CSV file of each table in foreign key order
+     * @param dir the directory holding the CSV files
+     * @return the number of rows loaded
+     */
+    private long loadTables(Path dir) {
+        long rows = 0;
+        // Stores are inserted without managers, since the managers are staff that do not exist yet
+        rows += load(dir.resolve("stores.csv"), "store",
+                "INSERT INTO store (storeid, address, phone) VALUES (?, ?, ?)",
+                f -> new Object[] {toLong(f[0]), f[2], f[3]});
+        rows += load(dir.resolve("staff.csv"), "staff",
+                "INSERT INTO staff (staffid, storeid, name, age, address, phone, email, employment_time, title) "
+                        + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                f -> new Object[] {toLong(f[0]), toLong(f[1]), f[2], toInt(f[3]), f[4], f[5], f[6], toInt(f[7]),
+                        Staff.Title.fromString(f[8]).ordinal()});
+        load(dir.resolve("stores.csv"), "store managers",
+                "UPDATE store SET managerid = ? WHERE storeid = ?",
+                f -> new Object[] {toLong(f[1]), toLong(f[0])});
+        rows += load(dir.resolve("members.csv"), "members",
+                "INSERT INTO members (memberid, first_name, last_name, membership_level, email, phone_no, address, is_active) "
+                        + "VALUES (?, ?, ?, ?, ?, ?, ?, ?)",
+                f -> new Object[] {toLong(f[0]), f[1], f[2], toLevel(f[3]), f[4], Member.normalizePhone(f[5]), f[6],
+                        Boolean.parseBoolean(f[7])});
+        rows += load(dir.resolve("suppliers.csv"), "supplier",
+                "INSERT INTO supplier (supplierid, supplier_name, phone, email, location) VALUES (?, ?, ?, ?, ?)",
+                f -> new Object[] {toLong(f[0]), f[1], f[2], f[3], f[4]});
+        rows += load(dir.resolve("merchandise.csv"), "merchandise",
+                "INSERT INTO merchandise (productid, storeid, supplierid, product_name, quantity, buy_price, market_price, "
+                        + "production_date, expiration_date) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                f -> new Object[] {toLong(f[0]), toLong(f[1]), toLong(f[2]), f[3], toInt(f[4]), toDouble(f[5]),
+                        toDouble(f[6]), toDate(f[7]), toDate(f[8])});
+        rows += load(dir.resolve("discounts.csv"), "discount",
+                "INSERT INTO discount (productid, discount_percentage, start, end) VALUES (?, ?, ?, ?)",
+                f -> new Object[] {toLong(f[0]), toInt(f[1]), toDate(f[2]), toDate(f[3])});
+        rows += load(dir.resolve("signups.csv"), "sign_up",
+                "INSERT INTO sign_up (memberid, storeid, sign_up_date) VALUES (?, ?, ?)",
+                f -> new Object[] {toLong(f[0]), toLong(f[1]), toDate(f[2])});
+        rows += load(dir.resolve("transactions.csv"), "transaction",
+                "INSERT INTO transaction (transactionid, storeid, member_id, cashierid, purchase_date, total_price) "
+                        + "VALUES (?, ?, ?, ?, ?, ?)",
+                f -> new Object[] {toLong(f[0]), toLong(f[1]), toLong(f[2]), toLong(f[3]), toDate(f[4]), toDouble(f[5])});
+        rows += load(dir.resolve("transaction_items.csv"), "transaction_item",
+                "INSERT INTO transaction_item (transactionid, productid, quantity) VALUES (?, ?, ?)",
+                f -> new Object[] {toLong(f[0]), toLong(f[1]), f.length > 2 && !f[2].isEmpty() ? toInt(f[2]) : 1});
+        return rows;
+    }
+
+    /**
+     * Bring ID sequences and derived data up to date with the rows loaded
+     */
+    private void finishLoad() {
+        // New IDs handed out by the program must not collide with the loaded ones
+        idServ.advancePastTable("store", "storeid");
+        idServ.advancePastTable("staff", "staffid");
+        idServ.advancePastTable("members", "memberid");
+        idServ.advancePastTable("merchandise", "productid");
+        idServ.advancePastTable("transaction", "transactionid");
+
+        // Loaded rows did not go through the services, so derived data has to be rebuilt
+        transServ.rebuildDailySalesRollup();
+        transServ.rebuildRewardsLedger();
+        productServ.linkMerchandise();
+        deliveryServ.backfillFromMerchandise();
+        discountServ.reloadIndex();
+        merchServ.clearLotIndex();
+    }
+
+    /**
+     * Insert every row of a CSV file into the database in chunks
+     * @param file the CSV file to read
+     * @param table name of the table, used in the progress report
+     * @param sql the statement run for each row
+     * @param converter turns the fields of a row into the statement parameters
+     * @return the number of rows written, 0 if the file does not exist
+     * @throws LoadException if the file cannot be read, or a row cannot be converted or inserted
+     */
+    private long load(Path file, String table, String sql, Function<String[], Object[]> converter) {
+        if (!Files.exists(file)) {
+            System.out.printf("Skipping %s, %s not found\n", table, file.getFileName());
+            return 0;
+        }
+
+        long start = System.nanoTime();
+        long rows = 0;
+        List<Object[]> chunk = new ArrayList<>(chunkSize);
+        List<Integer> lines = new ArrayList<>(chunkSize);
+        int lineNo = 1;
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            in.readLine(); // header
+            String line;
+            while ((line = in.readLine()) != null) {
+                lineNo++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    chunk.add(converter.apply(parseLine(line)));
+                } catch (RuntimeException e) {
+                    throw new LoadException(file, lineNo, e);
+                }
+                lines.add(lineNo);
+                if (chunk.size() == chunkSize) {
+                    rows += writeChunk(file, sql, chunk, lines);
+                }
+            }
+        } catch (IOException e) {
+            throw new LoadException(file, lineNo, e);
+        }
+        rows += writeChunk(file, sql, chunk, lines);
+        report(table, rows, System.nanoTime() - start);
+        return rows;
+    }
+
+    /**
+     * Write a chunk of rows in one batch and one transaction, then empty the chunk
+     * @param file the CSV file the rows were read from
+     * @param sql the statement run for each row
+     * @param chunk the statement parameters for each row
+     * @param lines the line of the file each row was read from
+     * @return the number of rows written
+     * @throws LoadException if the chunk cannot be inserted, naming the first line that fails
+     */
+    private int writeChunk(Path file, String sql, List<Object[]> chunk, List<Integer> lines) {
+        if (chunk.isEmpty()) {
+            return 0;
+        }
+        try {
+            chunkTx.executeWithoutResult(status -> jdbc.batchUpdate(sql, chunk));
+        } catch (DataAccessException e) {
+            throw new LoadException(file, findFailingLine(sql, chunk, lines), e);
+        }
+        int size = chunk.size();
+        chunk.clear();
+        lines.clear();
+        return size;
+    }
+
+    /**
+     * Find which row of a chunk that failed to insert is at fault, by inserting the rows one at a time
+     * in a transaction that is always rolled back
+     * @param sql the statement run for each row
+     * @param chunk the statement parameters for each row
+     * @param lines the line of the file each row was read from
+     * @return the line of the first row that fails, or the first line of the chunk if none fail alone
+     */
+    private int findFailingLine(String sql, List<Object[]> chunk, List<Integer> lines) {
+        Integer failing = chunkTx.execute(status -> {
+            status.setRollbackOnly();
+            for (int i = 0; i < chunk.size(); i++) {
+                try {
+                    jdbc.update(sql, chunk.get(i));
+                } catch (DataAccessException e) {
+                    return lines.get(i);
+                }
+            }
+            return null;
+        });
+        return failing == null ? lines.get(0) : failing;
+    }
+
+    /**
+     * Print how many rows were loaded and how fast
+     * @param what the table or step that was loaded
+     * @param rows the number of rows loaded
+     * @param nanos how long loading took in nanoseconds
+     */
+    private void report(String what, long rows, long nanos) {
+        double seconds = nanos / 1_000_000_000.0;
+        System.out.printf("Loaded %d rows into %s in %.2f s (%.0f rows/sec)\n",
+                rows, what, seconds, seconds > 0 ? rows / seconds : 0);
+    }
+
+    /**
+     * Split one line of a CSV file into its fields.
+     * Fields may be quoted to hold commas, and a doubled quote inside a quoted field is a literal quote
+     * @param line the line to split
+     * @return the fields of the line, with surrounding quotes removed
+     */
+    static String[] parseLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString().trim());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString().trim());
+        return fields.toArray(new String[0]);
+    }
+
+    /**
+     * LoadException is thrown when a row of a CSV file cannot be read or inserted.
+     * The message names the file and line, and the cause says what was wrong with it
+     */
+    public static class LoadException extends RuntimeException {
+
+        /** The file holding the row */
+        private final Path file;
+
+        /** The line of the file the row is on, counting the header as line 1 */
+        private final int line;
+
+        /**
+         * Constructor for a failed row
+         * @param file the file holding the row
+         * @param line the line of the file the row is on
+         * @param cause what was wrong with the row
+         */
+        public LoadException(Path file, int line, Throwable cause) {
+            super(String.format("%s line %d: %s", file.getFileName(), line, rootMessage(cause)), cause);
+            this.file = file;
+            this.line = line;
+        }
+
+        /** Get the file holding the row */
+        public Path getFile() {
+            return file;
+        }
+
+        /** Get the line of the file the row is on */
+        public int getLine() {
+            return line;
+        }
+
+        /**
+         * Get the message of the innermost cause, which names the bad value or broken constraint
+         * @param cause the exception thrown for the row
+         * @return the first line of the innermost message, or the exception type if it has none
+         */
+        private static String rootMessage(Throwable cause) {
+            Throwable root = cause;
+            while (root.getCause() != null) {
+                root = root.getCause();
+            }
+            if (root.getMessage() == null) {
+                return root.getClass().getSimpleName();
+            }
+            // Drivers add the statement on the following lines, which is the same for every row
+            return root.getMessage().lines().findFirst().orElse("");
+        }
+    }
+
+    /** Parse a whole number, or null if the field is empty */
+    private static Long toLong(String field) {
+        return field.isEmpty() ? null : Long.valueOf(field);
+    }
+
+    /** Parse a whole number, or null if the field is empty */
+    private static Integer toInt(String field) {
+        return field.isEmpty() ? null : Integer.valueOf(field);
+    }
+
+    /** Parse a decimal number, or null if the field is empty */
+    private static Double toDouble(String field) {
+        return field.isEmpty() ? null : Double.valueOf(field);
+    }
+
+    /** Parse a yyyy-MM-dd date, or null if the field is empty */
+    private static LocalDate toDate(String field) {
+        return field.isEmpty() ? null : LocalDate.parse(field);
+    }
+
+    /** Convert a membership level such as "Gold" to the name stored in the database */
+    private static String toLevel(String field) {
+        MembershipLevel level = MembershipLevel.getLevel(field);
+        return level == null ? null : level.name();
+    }
+}
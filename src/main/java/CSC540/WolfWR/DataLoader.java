@@ -2,16 +2,29 @@ package CSC540.WolfWR;
 
 import CSC540.WolfWR.models.*;
 import CSC540.WolfWR.services.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
 
 /**
  * Load the database with the dummy data provided.
- * Please manually clear the database prior to loading in
+ * Please manually clear the database prior to loading in.
+ * Everything is loaded in one transaction with deferred saves, so rows are written in batches
  */
+@Transactional
 @Component
 public class DataLoader {
 
+    /** Logs how many rows were saved and how many flushes it took */
+    private static final Logger log = LoggerFactory.getLogger(DataLoader.class);
+
+    @Autowired
+    private DeliveryService deliveryServ;
+
     @Autowired
     private DiscountService discountServ;
 
@@ -21,6 +34,9 @@ public class DataLoader {
     @Autowired
     private  MerchandiseService merchServ;
 
+    @Autowired
+    private  ProductService productServ;
+
     @Autowired
     private  SignUpService signUpServ;
 
@@ -36,6 +52,9 @@ public class DataLoader {
     @Autowired
     private  TransactionService transServ;
 
+    @Autowired
+    private IdService idServ;
+
     public void loadData() {
         loadStore();
         // set Manager for store 1001 after Staff are created handled in loadStaff()
@@ -49,6 +68,28 @@ public class DataLoader {
         loadDiscount();
         loadSignUp();
         loadTransaction();
+        // Transactions are saved directly, so the rollup and rewards ledger have to be built from them
+        transServ.rebuildDailySalesRollup();
+        transServ.rebuildRewardsLedger();
+        // Merchandise is saved directly, so each entry is recorded as one delivery from its supplier
+        deliveryServ.backfillFromMerchandise();
+        // The sample rows have fixed IDs, new IDs handed out by the program must not collide with them
+        idServ.advancePastTable("store", "storeid");
+        idServ.advancePastTable("staff", "staffid");
+        idServ.advancePastTable("members", "memberid");
+        idServ.advancePastTable("merchandise", "productid");
+        idServ.advancePastTable("transaction", "transactionid");
+
+        if (log.isDebugEnabled()) {
+            long saves = 0;
+            long flushes = 0;
+            for (Services<?, ?> serv : List.of(deliveryServ, discountServ, memberServ, merchServ, productServ, signUpServ,
+                    staffServ, storeServ, supplierServ, transServ)) {
+                saves += serv.getSaveCount();
+                flushes += serv.getFlushCount();
+            }
+            log.debug("Saved {} rows with {} flushes", saves, flushes);
+        }
 
 
     }
@@ -56,27 +97,27 @@ public class DataLoader {
     private  void loadMembers() {
         Member m = new Member(501L, "John", "Doe", "Gold", "john.doe@gmail.com",
                 "9194285314", "12 Elm St, Raleigh, NC 27607", true);
-        memberServ.save(m);
+        memberServ.saveDeferred(m);
 
         m = new Member(502L, "Emily", "Smith", "Silver", "emily.smith@gmail.com",
                 "9844235314", "34 Oak Ave, Raleigh, NC 27606", false);
-        memberServ.save(m);
+        memberServ.saveDeferred(m);
 
         m = new Member(503, "Michael", "Brown", "Platinum", "michael.brown@gmail.com", "9194820931",
                 "56 Pine Rd, Raleigh, NC 27607", true);
-        memberServ.save(m);
+        memberServ.saveDeferred(m);
 
         m = new Member(504L, "Sarah", "Johnson", "Gold", "sarah.johnson@gmail.com",
                 "9841298435", "78 Maple Dr, Raleigh, NC 27607", true);
-        memberServ.save(m);
+        memberServ.saveDeferred(m);
 
         m = new Member(505L, "David", "Williams", "Silver", "david.williams@gmail.com",
                 "9194829424", "90 Birch Ln, Raleigh, NC 27607", false);
-        memberServ.save(m);
+        memberServ.saveDeferred(m);
 
         m = new Member(506L, "Anna", "Miller", "Platinum", "anna.miller@gmail.com", "9848519427",
                 "101 Oak Ct, Raleigh, NC 27607", true);
-        memberServ.save(m);
+        memberServ.saveDeferred(m);
 
 
 
@@ -85,11 +126,11 @@ public class DataLoader {
     private  void loadStore () {
         Store store = new Store(1001L, "9194789125",
                 "1021 Main Campus Dr, Raleigh, NC, 27606", null);
-        storeServ.save( store );
+        storeServ.saveDeferred( store );
 
         store = new Store(1002L, "9195929621",
                 "851 Partners Way, Raleigh, NC, 27606", null);
-        storeServ.save(store);
+        storeServ.saveDeferred(store);
     }
 
     private  void loadStaff() {
@@ -106,11 +147,11 @@ public class DataLoader {
         alice.setPhone("9194285357");
         alice.setEmail("alice.johnson@gmail.com");
         alice.setEmploymentTime(5);
-        staffServ.save(alice);
+        staffServ.saveDeferred(alice);
 
         alice = staffServ.findByID(201L);
         store1.setManager(alice);
-        storeServ.save(store1);
+        storeServ.saveDeferred(store1);
 
         Staff charles = new Staff();
         charles.setStaffId(203);
@@ -122,7 +163,7 @@ public class DataLoader {
         charles.setPhone("9194856193");
         charles.setEmail("charlie.davis@gmail.com");
         charles.setEmploymentTime(7);
-        staffServ.save(charles);
+        staffServ.saveDeferred(charles);
 
         Staff emma = new Staff();
         emma.setStaffId(205);
@@ -134,7 +175,7 @@ public class DataLoader {
         emma.setPhone("9198247184");
         emma.setEmail("emma.white@gmail.com");
         emma.setEmploymentTime(4);
-        staffServ.save(emma);
+        staffServ.saveDeferred(emma);
 
         Staff isla = new Staff();
         isla.setStaffId(207);
@@ -146,7 +187,7 @@ public class DataLoader {
         isla.setPhone("9841298427");
         isla.setEmail("isla.scott@gmail.com");
         isla.setEmploymentTime(2);
-        staffServ.save(isla);
+        staffServ.saveDeferred(isla);
 
         // Create and insert Staff records for store2 (StoreID 1002)
         Staff bob = new Staff();
@@ -159,7 +200,7 @@ public class DataLoader {
         bob.setPhone("9841482375");
         bob.setEmail("bob.smith@hotmail.com");
         bob.setEmploymentTime(3);
-        staffServ.save(bob);
+        staffServ.saveDeferred(bob);
 
         Staff david = new Staff();
         david.setStaffId(204);
@@ -171,7 +212,7 @@ public class DataLoader {
         david.setPhone("9847028471");
         david.setEmail("david.lee@yahoo.com");
         david.setEmploymentTime(10);
-        staffServ.save(david);
+        staffServ.saveDeferred(david);
 
         Staff frank = new Staff();
         frank.setStaffId(206);
@@ -183,12 +224,12 @@ public class DataLoader {
         frank.setPhone("9194288535");
         frank.setEmail("frank.harris@gmail.com");
         frank.setEmploymentTime(6);
-        staffServ.save(frank);
+        staffServ.saveDeferred(frank);
 
         Staff jack = new Staff("Jack Lewis", "888 Falcon St, Greensboro, NC 27377",
                 41, "jack.lewis@gmail.com", "Cashier", "9194183951",
                 3, 208, store2);
-        staffServ.save(jack);
+        staffServ.saveDeferred(jack);
 
 
     }
@@ -202,35 +243,35 @@ public class DataLoader {
 
         Merchandise m = new Merchandise(301, "Organic Apples", 120, 1.5, 2,
                 "04-12-2025", "04-20-2025", supplier1, store2);
-        merchServ.save(m);
+        merchServ.saveDeferred(m);
 
         m = new Merchandise(302L, "Whole Grain Bread", 80, 2,
                 3.5, "04-10-2025", "04-15-2025", supplier1, store2);
-        merchServ.save(m);
+        merchServ.saveDeferred(m);
 
         m = new Merchandise(303L, "Almond Milk", 150, 3.5,
                 4, "04-15-2025", "04-30-2025", supplier1, store2);
-        merchServ.save(m);
+        merchServ.saveDeferred(m);
 
         m = new Merchandise(304L, "Brown Rice", 200, 2.8,
                 3.5, "04-12-2025", "04-20-2025", supplier2, store2);
-        merchServ.save(m);
+        merchServ.saveDeferred(m);
 
         m = new Merchandise(305L, "Olive Oil", 90, 5,
                 7, "04-04-2025", "04-20-2027", supplier2, store2);
-        merchServ.save(m);
+        merchServ.saveDeferred(m);
 
         m = new Merchandise(306L, "Whole Chicken", 75, 10,
                 13, "04-12-2025", "05-12-2025", supplier2, store2);
-        merchServ.save(m);
+        merchServ.saveDeferred(m);
 
         m = new Merchandise(307L, "Cheddar Cheese", 60, 3,
                 4.2, "04-12-2025", "10-12-2025", supplier2, store2);
-        merchServ.save(m);
+        merchServ.saveDeferred(m);
 
         m = new Merchandise(308L, "Dark Chocolate", 50, 2.5,
                 3.5, "04-12-2025", "06-20-2026", supplier2, store2);
-        merchServ.save(m);
+        merchServ.saveDeferred(m);
     }
 
     private  void loadSignUp(){
@@ -242,27 +283,27 @@ public class DataLoader {
         if (store1 == null) {
             System.out.println("\n\nNull Store\n\n");
         }
-        signUpServ.save(s);
+        signUpServ.saveDeferred(s);
 
         m = memberServ.findByID(502L);
         s = new SignUp(store1, "02-28-2022", m);
-        signUpServ.save(s);
+        signUpServ.saveDeferred(s);
 
         m = memberServ.findByID(503L);
         s = new SignUp(store2, "03-22-2020", m);
-        signUpServ.save(s);
+        signUpServ.saveDeferred(s);
 
         m = memberServ.findByID(504L);
         s = new SignUp(store2, "03-15-2023", m);
-        signUpServ.save(s);
+        signUpServ.saveDeferred(s);
 
         m = memberServ.findByID(505L);
         s = new SignUp(store2, "08-23-2024", m);
-        signUpServ.save(s);
+        signUpServ.saveDeferred(s);
 
         m = memberServ.findByID(506L);
         s = new SignUp(store2, "02-10-2025", m);
-        signUpServ.save(s);
+        signUpServ.saveDeferred(s);
     }
 
     private  void loadTransaction(){
@@ -287,42 +328,42 @@ public class DataLoader {
         Transaction t = new Transaction(701L, store2, m2, s3, "02-10-2024", 45);
         t.addMerchandise(apples);
         t.addMerchandise(bread);
-        transServ.save(t);
+        transServ.saveDeferred(t);
 
         t = new Transaction(702L, store2, m2, s8, "09-12-2024", 60.75);
         t.addMerchandise(milk);
         t.addMerchandise(rice);
         t.addMerchandise(oil);
-        transServ.save(t);
+        transServ.saveDeferred(t);
 
         t = new Transaction(703L, store2, m2, s8, "09-23-2024", 78.9);
         t.addMerchandise(chocolate);
         t.addMerchandise(oil);
         t.addMerchandise(milk);
-        transServ.save(t);
+        transServ.saveDeferred(t);
 
         t = new Transaction(704L, store2, m4, s8, "07-23-2024", 32.5);
         t.addMerchandise(chicken);
-        transServ.save(t);
+        transServ.saveDeferred(t);
     }
 
     private  void loadSupplier(){
         Supplier s = new Supplier( 401, "Fresh Farms Ltd.", "9194248251",
                 "contact@freshfarm.com", "123 Greenway Blvd, Raleigh, NC 27615");
-        supplierServ.save(s);
+        supplierServ.saveDeferred(s);
 
         s = new Supplier(402, "Organic Goods Inc.", "9841384298",
                 "info@organicgoods.com", "456 Healthy Rd, Raleigh, NC 27606");
-        supplierServ.save(s);
+        supplierServ.saveDeferred(s);
     }
 
     private  void loadDiscount(){
         Merchandise m = merchServ.findByID(306L);
         Discount d = new Discount(m, 10, "04-10-2024", "05-10-2024");
-        discountServ.save(d);
+        discountServ.saveDeferred(d);
 
         m = merchServ.findByID(303L);
         d = new Discount(m, 20, "02-12-2023", "02-19-2023");
-        discountServ.save(d);
+        discountServ.saveDeferred(d);
     }
 }
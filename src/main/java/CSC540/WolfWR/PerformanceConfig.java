@@ -0,0 +1,40 @@
+package CSC540.WolfWR;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * Beans used only by the "perf" profile. Pool sizing, statement caching and batching
+ * are set in application-perf.properties; this class replaces per-statement console output
+ * with a sampled logger.
+ *
+ * @author Brandon Jiang
+ */
+@Configuration
+@Profile("perf")
+public class PerformanceConfig {
+
+    /**
+     * Logger that records a sample of the SQL statements run
+     * @param sampleRate one statement out of this many is logged
+     * @return the sampled logger
+     */
+    @Bean
+    public SampledSqlLogger sampledSqlLogger(@Value("${wolfwr.sql.log.sample-rate:100}") long sampleRate) {
+        return new SampledSqlLogger(sampleRate);
+    }
+
+    /**
+     * Register the sampled logger with Hibernate
+     * @param sqlLogger the sampled logger
+     * @return customizer that adds the logger to the Hibernate settings
+     */
+    @Bean
+    public HibernatePropertiesCustomizer sampledSqlLogging(SampledSqlLogger sqlLogger) {
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, sqlLogger);
+    }
+}
@@ -0,0 +1,56 @@
+package CSC540.WolfWR;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * SampledSqlLogger logs a sample of the SQL statements Hibernate prepares, instead of printing every one.
+ * Printing each statement to the console slows down busy registers, but seeing some of them
+ * is still useful when looking into what the program is doing.
+ *
+ * @author Brandon Jiang
+ */
+public class SampledSqlLogger implements StatementInspector {
+
+    /** Where sampled statements are written */
+    private static final Logger log = LoggerFactory.getLogger(SampledSqlLogger.class);
+
+    /** Number of statements prepared since startup */
+    private final AtomicLong count = new AtomicLong();
+
+    /** One statement out of this many is logged */
+    private final long sampleRate;
+
+    /**
+     * Constructor for the logger
+     * @param sampleRate one statement out of this many is logged, 1 logs every statement
+     */
+    public SampledSqlLogger(long sampleRate) {
+        this.sampleRate = Math.max(1, sampleRate);
+    }
+
+    /**
+     * Called by Hibernate before each statement is prepared. The statement is returned unchanged
+     * @param sql the statement about to be prepared
+     * @return the same statement
+     */
+    @Override
+    public String inspect(String sql) {
+        long n = count.incrementAndGet();
+        if (n % sampleRate == 0 && log.isDebugEnabled()) {
+            log.debug("SQL #{}: {}", n, sql);
+        }
+        return sql;
+    }
+
+    /**
+     * Get the number of statements prepared since startup
+     * @return the number of statements
+     */
+    public long getCount() {
+        return count.get();
+    }
+}
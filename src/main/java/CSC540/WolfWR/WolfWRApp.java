@@ -2,27 +2,46 @@ package CSC540.WolfWR;
 
 import CSC540.WolfWR.models.Member;
 import CSC540.WolfWR.services.MemberService;
+import CSC540.WolfWR.services.ProductService;
+import CSC540.WolfWR.services.TransactionService;
 import CSC540.WolfWR.views.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
 import java.util.Scanner;
 
 /**
- * WolfWRApp holds the main methods to program execution
+ * WolfWRApp holds the main methods to program execution.
+ * Scheduling is enabled for background jobs such as the nightly expiry sweep
  * @author Brandon Jiang
  */
 @SpringBootApplication
+@EnableScheduling
 public class WolfWRApp  implements CommandLineRunner{
 
 
     /** Loads the starter data provided into the database */
     @Autowired
     private DataLoader loader;
+    /** Loads large amounts of data into the database from CSV files */
+    @Autowired
+    private BulkLoader bulkLoader;
+    /** Moves transaction items saved by older versions into the current tables */
+    @Autowired
+    private TransactionService transServ;
+    /** Gives merchandise stocked without the services its SKU before checkout looks for it */
+    @Autowired
+    private ProductService productServ;
+    /** Stores the phone numbers of members saved before they were kept as digits only in that form */
+    @Autowired
+    private MemberService memberServ;
     /** Class that has all actions that are performed by billing staff */
     @Autowired
     private BillingStaffView billing;
@@ -50,11 +69,12 @@ public class WolfWRApp  implements CommandLineRunner{
     public static DateTimeFormatter timeFormat = DateTimeFormatter.ofPattern("MM-dd-yyyy");
 
     /**
-     * Main method that runs the program. Starts the spring application
+     * Main method that runs the program. Starts the spring application, and shuts it down once the user quits,
+     * since the scheduler thread would otherwise keep the program running
      * @param args command line arguments
      */
     public static void main(String[] args) {
-        SpringApplication.run(WolfWRApp.class, args);
+        System.exit(SpringApplication.exit(SpringApplication.run(WolfWRApp.class, args)));
     }
 
     /**
@@ -66,6 +86,18 @@ public class WolfWRApp  implements CommandLineRunner{
     public void run(String... args) throws Exception {
         Scanner scan = new Scanner(System.in);
         System.out.println("\n\nWelcome to Wolf Wholesale\n\n");
+        int migrated = transServ.migrateLegacyItems();
+        if (migrated > 0) {
+            System.out.printf("Copied %d purchased items from the old transaction_product_list table\n\n", migrated);
+        }
+        int linked = productServ.linkMerchandise();
+        if (linked > 0) {
+            System.out.printf("Gave %d merchandise entries their product SKU\n\n", linked);
+        }
+        int normalized = memberServ.normalizePhoneNumbers();
+        if (normalized > 0) {
+            System.out.printf("Stored the phone numbers of %d members as digits only\n\n", normalized);
+        }
 
 
 
@@ -78,6 +110,7 @@ public class WolfWRApp  implements CommandLineRunner{
             System.out.println("[4] Warehouse Staff");
             System.out.println("[5] Customer");
             System.out.println("[6] Global / Corporate");
+            System.out.println("[7] Bulk Load Data from CSV Files");
             System.out.print("> ");
 
             String line = scan.nextLine().trim();
@@ -118,6 +151,24 @@ public class WolfWRApp  implements CommandLineRunner{
                     global.view(scan);
                     break;
 
+                case "7":
+                    System.out.println("Input the directory holding the CSV files");
+                    System.out.print("> ");
+                    Path dir = Path.of(scan.nextLine().trim());
+                    if (!Files.isDirectory(dir)) {
+                        System.out.println("Directory not found\n");
+                        break;
+                    }
+                    try {
+                        bulkLoader.loadDirectory(dir);
+                        System.out.println("Data Loaded!!!\n");
+                    } catch (BulkLoader.LoadException e) {
+                        System.out.printf("\nLoading stopped at %s\n", e.getMessage());
+                        System.out.println("The load is partial: chunks committed before the one holding this line are still "
+                                + "in the database, and nothing after it was loaded.\n");
+                    }
+                    break;
+
                 default:
                     System.out.println("Unknown role selected\n");
             }
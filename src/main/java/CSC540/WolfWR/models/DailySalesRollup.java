@@ -0,0 +1,156 @@
+package CSC540.WolfWR.models;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * DailySalesRollup holds the number of transactions and total sales made at one store on one day.
+ * Rows are updated each time a purchase is completed, so reports over fixed timeframes
+ * can add up one row per day instead of reading every transaction.
+ *
+ * The table can be rebuilt from the transaction history at any time.
+ * Store reports use the primary key (store, day), and company-wide reports use the index on the day.
+ *
+ * @author Brandon Jiang
+ */
+@Entity
+@Table(name = "daily_sales_rollup", indexes = {@Index(name = "idx_rollup_date", columnList = "sales_date")})
+@IdClass(DailySalesRollup.RollupID.class)
+public class DailySalesRollup extends DomainObject {
+
+    /** The store the sales were made at */
+    @Id
+    @Column(name = "storeID")
+    private long storeID;
+
+    /** The day the sales were made */
+    @Id
+    @Column(name = "sales_date")
+    private LocalDate salesDate;
+
+    /** The number of transactions made at the store that day */
+    @NotNull
+    @Column(name = "transaction_count", nullable = false)
+    private long transactionCount;
+
+    /** The total price of all transactions made at the store that day */
+    @NotNull
+    @Column(name = "revenue", nullable = false)
+    private double revenue;
+
+    /** Empty constructor for JPA */
+    public DailySalesRollup() {}
+
+    /**
+     * Get the ID of the store
+     * @return the store ID
+     */
+    public long getStoreID() {
+        return storeID;
+    }
+
+    /**
+     * Set the ID of the store
+     * @param storeID the new store ID
+     */
+    public void setStoreID(long storeID) {
+        this.storeID = storeID;
+    }
+
+    /**
+     * Get the day the sales were made
+     * @return the sales date
+     */
+    public LocalDate getSalesDate() {
+        return salesDate;
+    }
+
+    /**
+     * Set the day the sales were made
+     * @param salesDate the new sales date
+     */
+    public void setSalesDate(LocalDate salesDate) {
+        this.salesDate = salesDate;
+    }
+
+    /**
+     * Get the number of transactions made
+     * @return the number of transactions
+     */
+    public long getTransactionCount() {
+        return transactionCount;
+    }
+
+    /**
+     * Set the number of transactions made
+     * @param transactionCount the new number of transactions
+     */
+    public void setTransactionCount(long transactionCount) {
+        this.transactionCount = transactionCount;
+    }
+
+    /**
+     * Get the total of all transactions made
+     * @return the total sales
+     */
+    public double getRevenue() {
+        return revenue;
+    }
+
+    /**
+     * Set the total of all transactions made
+     * @param revenue the new total sales
+     */
+    public void setRevenue(double revenue) {
+        this.revenue = revenue;
+    }
+
+    /**
+     * RollupID is a wrapper class that groups the store and date together
+     * to form a composite key in the database
+     */
+    public static class RollupID extends DomainObject {
+
+        private long storeID;
+
+        private LocalDate salesDate;
+
+        public RollupID() {}
+
+        public RollupID(long storeID, LocalDate salesDate) {
+            this.storeID = storeID;
+            this.salesDate = salesDate;
+        }
+
+        public long getStoreID() {
+            return storeID;
+        }
+
+        public void setStoreID(long storeID) {
+            this.storeID = storeID;
+        }
+
+        public LocalDate getSalesDate() {
+            return salesDate;
+        }
+
+        public void setSalesDate(LocalDate salesDate) {
+            this.salesDate = salesDate;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o == null || getClass() != o.getClass()) return false;
+            RollupID that = (RollupID) o;
+            return storeID == that.storeID && Objects.equals(salesDate, that.salesDate);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(storeID, salesDate);
+        }
+    }
+}
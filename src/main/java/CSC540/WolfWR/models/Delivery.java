@@ -0,0 +1,151 @@
+package CSC540.WolfWR.models;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+
+import java.time.LocalDate;
+
+/**
+ * Delivery records merchandise received from a supplier: which product, how many units, what each unit cost,
+ * and when it arrived. Deliveries are only ever added, never changed, so supplier bills computed from them
+ * stay the same as stock is sold, transferred, or returned.
+ *
+ * The product and store are kept as plain IDs along with the product name, so a delivery
+ * is still billed correctly after its merchandise entry is gone.
+ * Bills are looked up by supplier and delivery date, which is indexed. The product is indexed too,
+ * so the backfill can find merchandise with no delivery recorded.
+ *
+ * @author Brandon Jiang
+ */
+@Entity
+@Table(indexes = {
+        @Index(name = "idx_delivery_supplier_date", columnList = "supplierID, deliveryDate"),
+        @Index(name = "idx_delivery_date", columnList = "deliveryDate"),
+        @Index(name = "idx_delivery_product", columnList = "productID")})
+public class Delivery extends DomainObject {
+
+    /** Unique identifier for a delivery */
+    @Id
+    private long deliveryID;
+
+    /** The company that delivered the merchandise */
+    @ManyToOne(fetch = FetchType.LAZY)
+    @NotNull
+    @JoinColumn(name = "supplierID", nullable = false)
+    private Supplier supplier;
+
+    /** The store that received the merchandise */
+    @NotNull
+    private long storeID;
+
+    /** The merchandise entry the units were added to */
+    @NotNull
+    private long productID;
+
+    /** The name of the product when it was delivered */
+    @Column(nullable = false)
+    private String productName;
+
+    /** The number of units delivered */
+    @Min(1)
+    @NotNull
+    private int quantity;
+
+    /** The price paid to the supplier for each unit */
+    @Min(0)
+    @NotNull
+    private double unitCost;
+
+    /** The day the merchandise was received */
+    @NotNull
+    @Column(nullable = false)
+    private LocalDate deliveryDate;
+
+    /**
+     * Empty Constructor for JPA
+     */
+    public Delivery() {}
+
+    /**
+     * Constructor for a delivery of units added to a merchandise entry
+     * @param deliveryID unique identifier for the delivery
+     * @param merch the merchandise entry that received the units
+     * @param quantity the number of units delivered
+     * @param deliveryDate the day the merchandise was received
+     */
+    public Delivery(long deliveryID, Merchandise merch, int quantity, LocalDate deliveryDate) {
+        this.deliveryID = deliveryID;
+        this.supplier = merch.getSupplier();
+        this.storeID = merch.getStore().getStoreID();
+        this.productID = merch.getProductID();
+        this.productName = merch.getProductName();
+        this.quantity = quantity;
+        this.unitCost = merch.getBuyPrice();
+        this.deliveryDate = deliveryDate;
+    }
+
+    /**
+     * Get the delivery ID
+     * @return the delivery ID
+     */
+    public long getDeliveryID() {
+        return deliveryID;
+    }
+
+    /**
+     * Get the supplier that delivered the merchandise
+     * @return the supplier
+     */
+    public Supplier getSupplier() {
+        return supplier;
+    }
+
+    /**
+     * Get the ID of the store that received the merchandise
+     * @return the store ID
+     */
+    public long getStoreID() {
+        return storeID;
+    }
+
+    /**
+     * Get the ID of the merchandise entry the units were added to
+     * @return the product ID
+     */
+    public long getProductID() {
+        return productID;
+    }
+
+    /**
+     * Get the name of the product delivered
+     * @return the product name
+     */
+    public String getProductName() {
+        return productName;
+    }
+
+    /**
+     * Get the number of units delivered
+     * @return the quantity
+     */
+    public int getQuantity() {
+        return quantity;
+    }
+
+    /**
+     * Get the price paid for each unit
+     * @return the unit cost
+     */
+    public double getUnitCost() {
+        return unitCost;
+    }
+
+    /**
+     * Get the day the merchandise was received
+     * @return the delivery date
+     */
+    public LocalDate getDeliveryDate() {
+        return deliveryDate;
+    }
+}
@@ -18,6 +18,9 @@ import java.util.Objects;
  * To discount a specific dollar value, management would need to compute the percentage first.
  * Ex. A manager wants to do a $2 discount on a $5 item. They would create a 40% discount on the item.
  *
+ * Prices are looked up in the in-memory discount index, which reads every discount at once, so the
+ * table needs no index besides the (productID, start) primary key.
+ *
  * @author Brandon Jiang
  */
 @Entity
@@ -0,0 +1,74 @@
+package CSC540.WolfWR.models;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+
+/**
+ * IdSequence is a row in the small sequence table used to hand out unique ID numbers.
+ * Each table that needs new IDs (members, merchandise, staff, stores, transactions) has one row
+ * holding the next value that has not yet been reserved by any running instance of the program.
+ *
+ * Instances reserve IDs in blocks by moving nextValue forward, so the row is only touched
+ * once per block rather than once per new entity.
+ *
+ * @author Brandon Jiang
+ */
+@Entity
+@Table(name = "id_sequence")
+public class IdSequence extends DomainObject {
+
+    /** The name of the sequence, usually the table the IDs are for */
+    @Id
+    @Column(name = "name", length = 64)
+    private String name;
+
+    /** The first ID that has not been reserved yet */
+    @NotNull
+    @Column(name = "next_value", nullable = false)
+    private long nextValue;
+
+    /** Empty constructor for JPA */
+    public IdSequence() {}
+
+    /**
+     * Fully enumerated constructor
+     * @param name the name of the sequence
+     * @param nextValue the first ID that has not been reserved yet
+     */
+    public IdSequence(String name, long nextValue) {
+        setName(name);
+        setNextValue(nextValue);
+    }
+
+    /**
+     * Get the name of the sequence
+     * @return the sequence name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Set the name of the sequence
+     * @param name the new sequence name
+     */
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Get the first ID that has not been reserved yet
+     * @return the next unreserved ID
+     */
+    public long getNextValue() {
+        return nextValue;
+    }
+
+    /**
+     * Set the first ID that has not been reserved yet
+     * @param nextValue the new next unreserved ID
+     */
+    public void setNextValue(long nextValue) {
+        this.nextValue = nextValue;
+    }
+}
@@ -5,11 +5,17 @@ import jakarta.persistence.*;
 /**
  * The Member class represents customers and their membership status with the company.
  * Basic information like names and contact information is also stored for each member.
+ * Phone number, email, and names are indexed so members can be found at the register without a table scan.
+ * Phone numbers are stored as digits only, so the same number matches however it was typed.
  *
  * @author Brandon Jiang
  */
 @Entity
-@Table(name="members")
+@Table(name="members", indexes = {
+        @Index(name = "idx_members_phone", columnList = "phoneNo"),
+        @Index(name = "idx_members_email", columnList = "email"),
+        @Index(name = "idx_members_first_name", columnList = "firstName"),
+        @Index(name = "idx_members_last_name", columnList = "lastName")})
 public class Member extends DomainObject{
 
     /** Unique Identifier for each member */
@@ -28,7 +34,7 @@ public class Member extends DomainObject{
 
     /** Member's email address */
     private String email;
-    /** Member's phone number */
+    /** Member's phone number, digits only */
     private String phoneNo;
     /** Member's physical address */
     private String address;
@@ -53,7 +59,7 @@ public class Member extends DomainObject{
         this.membershipLevel = MembershipLevel.getLevel(ml);
         this.email = email;
         this.address = address;
-        this.phoneNo = phoneNo;
+        this.phoneNo = normalizePhone(phoneNo);
         this.isActive = isActive;
     }
 
@@ -151,11 +157,20 @@ public class Member extends DomainObject{
     }
 
     /**
-     * Set / Change the member's phone number
+     * Set / Change the member's phone number, keeping only its digits
      * @param phoneNo the new phone number
      */
     public void setPhoneNo(String phoneNo) {
-        this.phoneNo = phoneNo;
+        this.phoneNo = normalizePhone(phoneNo);
+    }
+
+    /**
+     * Put a phone number in the form it is stored in
+     * @param phoneNo the phone number as typed, such as "919-555-0101"
+     * @return only the digits of the phone number, or null if it is null
+     */
+    public static String normalizePhone(String phoneNo) {
+        return phoneNo == null ? null : phoneNo.replaceAll("[^0-9]", "");
     }
 
     /**
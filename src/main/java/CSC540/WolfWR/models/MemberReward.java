@@ -0,0 +1,173 @@
+package CSC540.WolfWR.models;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+
+import java.util.Objects;
+
+/**
+ * MemberReward records the rewards a member earned for one rewards year, as computed by the year-end rewards run.
+ * The rewards year is identified by its last month, stored as yyyymm, and covers that month and the 11 before it.
+ * The rate is stored with each row so results stay correct if the configured rates change later.
+ *
+ * @author Brandon Jiang
+ */
+@Entity
+@Table(name = "member_reward")
+@IdClass(MemberReward.RewardID.class)
+public class MemberReward extends DomainObject {
+
+    /** The member who earned the rewards */
+    @Id
+    @Column(name = "member_id")
+    private long memberID;
+
+    /** The last month of the rewards year, as yyyymm */
+    @Id
+    @Column(name = "period")
+    private int period;
+
+    /** The total price of all purchases the member made during the rewards year */
+    @NotNull
+    @Column(name = "total_spent", nullable = false)
+    private double totalSpent;
+
+    /** The percentage of their purchases the member earned back */
+    @NotNull
+    @Column(name = "reward_rate", nullable = false)
+    private double rewardRate;
+
+    /** The rewards earned */
+    @NotNull
+    @Column(name = "reward", nullable = false)
+    private double reward;
+
+    /** Empty constructor for JPA */
+    public MemberReward() {}
+
+    /**
+     * Get the ID of the member
+     * @return the member ID
+     */
+    public long getMemberID() {
+        return memberID;
+    }
+
+    /**
+     * Set the ID of the member
+     * @param memberID the new member ID
+     */
+    public void setMemberID(long memberID) {
+        this.memberID = memberID;
+    }
+
+    /**
+     * Get the last month of the rewards year
+     * @return the month as yyyymm
+     */
+    public int getPeriod() {
+        return period;
+    }
+
+    /**
+     * Set the last month of the rewards year
+     * @param period the new month as yyyymm
+     */
+    public void setPeriod(int period) {
+        this.period = period;
+    }
+
+    /**
+     * Get the total spent during the rewards year
+     * @return the total spent
+     */
+    public double getTotalSpent() {
+        return totalSpent;
+    }
+
+    /**
+     * Set the total spent during the rewards year
+     * @param totalSpent the new total spent
+     */
+    public void setTotalSpent(double totalSpent) {
+        this.totalSpent = totalSpent;
+    }
+
+    /**
+     * Get the rewards percentage used
+     * @return the rewards percentage
+     */
+    public double getRewardRate() {
+        return rewardRate;
+    }
+
+    /**
+     * Set the rewards percentage used
+     * @param rewardRate the new rewards percentage
+     */
+    public void setRewardRate(double rewardRate) {
+        this.rewardRate = rewardRate;
+    }
+
+    /**
+     * Get the rewards earned
+     * @return the rewards earned
+     */
+    public double getReward() {
+        return reward;
+    }
+
+    /**
+     * Set the rewards earned
+     * @param reward the new rewards earned
+     */
+    public void setReward(double reward) {
+        this.reward = reward;
+    }
+
+    /**
+     * RewardID is a wrapper class that groups the member and rewards year together
+     * to form a composite key in the database
+     */
+    public static class RewardID extends DomainObject {
+
+        private long memberID;
+
+        private int period;
+
+        public RewardID() {}
+
+        public RewardID(long memberID, int period) {
+            this.memberID = memberID;
+            this.period = period;
+        }
+
+        public long getMemberID() {
+            return memberID;
+        }
+
+        public void setMemberID(long memberID) {
+            this.memberID = memberID;
+        }
+
+        public int getPeriod() {
+            return period;
+        }
+
+        public void setPeriod(int period) {
+            this.period = period;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o == null || getClass() != o.getClass()) return false;
+            RewardID that = (RewardID) o;
+            return memberID == that.memberID && period == that.period;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(memberID, period);
+        }
+    }
+}
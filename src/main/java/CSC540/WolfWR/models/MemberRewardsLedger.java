@@ -0,0 +1,165 @@
+package CSC540.WolfWR.models;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * MemberRewardsLedger holds the number of purchases and total spent by one member in one calendar month.
+ * Rows are updated each time a purchase is completed, so a member's rewards for the last twelve months
+ * add up at most twelve rows instead of reading every transaction they made.
+ *
+ * Months are stored as a number in the form yyyymm (April 2024 is 202404), which sorts and compares
+ * like the months themselves. The table can be rebuilt from the transaction history at any time.
+ *
+ * @author Brandon Jiang
+ */
+@Entity
+@Table(name = "member_rewards_ledger")
+@IdClass(MemberRewardsLedger.LedgerID.class)
+public class MemberRewardsLedger extends DomainObject {
+
+    /** The member who made the purchases */
+    @Id
+    @Column(name = "member_id")
+    private long memberID;
+
+    /** The month the purchases were made in, as yyyymm */
+    @Id
+    @Column(name = "period")
+    private int period;
+
+    /** The number of purchases the member made that month */
+    @NotNull
+    @Column(name = "purchase_count", nullable = false)
+    private long purchaseCount;
+
+    /** The total price of all purchases the member made that month */
+    @NotNull
+    @Column(name = "total_spent", nullable = false)
+    private double totalSpent;
+
+    /** Empty constructor for JPA */
+    public MemberRewardsLedger() {}
+
+    /**
+     * Get the ledger period a date falls in
+     * @param date the date to convert
+     * @return the month of the date as yyyymm
+     */
+    public static int periodOf(LocalDate date) {
+        return date.getYear() * 100 + date.getMonthValue();
+    }
+
+    /**
+     * Get the ID of the member
+     * @return the member ID
+     */
+    public long getMemberID() {
+        return memberID;
+    }
+
+    /**
+     * Set the ID of the member
+     * @param memberID the new member ID
+     */
+    public void setMemberID(long memberID) {
+        this.memberID = memberID;
+    }
+
+    /**
+     * Get the month the purchases were made in
+     * @return the month as yyyymm
+     */
+    public int getPeriod() {
+        return period;
+    }
+
+    /**
+     * Set the month the purchases were made in
+     * @param period the new month as yyyymm
+     */
+    public void setPeriod(int period) {
+        this.period = period;
+    }
+
+    /**
+     * Get the number of purchases made
+     * @return the number of purchases
+     */
+    public long getPurchaseCount() {
+        return purchaseCount;
+    }
+
+    /**
+     * Set the number of purchases made
+     * @param purchaseCount the new number of purchases
+     */
+    public void setPurchaseCount(long purchaseCount) {
+        this.purchaseCount = purchaseCount;
+    }
+
+    /**
+     * Get the total spent on all purchases
+     * @return the total spent
+     */
+    public double getTotalSpent() {
+        return totalSpent;
+    }
+
+    /**
+     * Set the total spent on all purchases
+     * @param totalSpent the new total spent
+     */
+    public void setTotalSpent(double totalSpent) {
+        this.totalSpent = totalSpent;
+    }
+
+    /**
+     * LedgerID is a wrapper class that groups the member and month together
+     * to form a composite key in the database
+     */
+    public static class LedgerID extends DomainObject {
+
+        private long memberID;
+
+        private int period;
+
+        public LedgerID() {}
+
+        public LedgerID(long memberID, int period) {
+            this.memberID = memberID;
+            this.period = period;
+        }
+
+        public long getMemberID() {
+            return memberID;
+        }
+
+        public void setMemberID(long memberID) {
+            this.memberID = memberID;
+        }
+
+        public int getPeriod() {
+            return period;
+        }
+
+        public void setPeriod(int period) {
+            this.period = period;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o == null || getClass() != o.getClass()) return false;
+            LedgerID that = (LedgerID) o;
+            return memberID == that.memberID && period == that.period;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(memberID, period);
+        }
+    }
+}
@@ -24,6 +24,16 @@ public enum MembershipLevel {
         return null;
     }
 
+    /**
+     * Percentage of a member's yearly purchases given back as rewards, used when no rate is configured
+     * @return the default rewards percentage for the membership level
+     */
+    public double getDefaultRewardRate() {
+        if (this.equals(PLATINUM))
+            return 2;
+        return 0;
+    }
+
     /**
      * Converts human legible strings to enumberations
      * @param level the desired membership level as a string (case-insensitive)
@@ -22,9 +22,23 @@ import java.time.LocalDate;
  * store's inventory of a product will require aggregating merchandise
  * across multiple shipments.
  *
+ * The supplier and store are loaded lazily. Inventory listings that print them use the
+ * "Merchandise.inventory" entity graph to load them in the same query.
+ * Entries are versioned, so changes made from an out of date copy fail instead of overwriting newer stock.
+ * Each entry points at the catalog Product it is stock of by SKU, so the same product is found at another store
+ * with the (store, SKU) index instead of comparing names. Inventory is also looked up by store, and stock about to
+ * expire by expiration date, and both are indexed.
+ * Supplier bills come from the Delivery ledger instead, since the quantity here goes down as the merchandise is sold.
+ *
  * @author Brandon Jiang
  */
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_merchandise_store_quantity", columnList = "storeID, quantity"),
+        @Index(name = "idx_merchandise_store_sku", columnList = "storeID, sku"),
+        @Index(name = "idx_merchandise_expiration", columnList = "expirationDate, productID")})
+@NamedEntityGraph(name = "Merchandise.inventory", attributeNodes = {
+        @NamedAttributeNode("supplier"), @NamedAttributeNode("store")})
 public class Merchandise extends DomainObject {
 
     /** Unique identifier for a merchandise entry in the database */
@@ -59,17 +73,33 @@ public class Merchandise extends DomainObject {
     private LocalDate expirationDate;
 
     /** The company that sells this product */
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @NotNull
     @JoinColumn(name = "supplierID")
     private Supplier supplier;
 
+    /**
+     * The catalog entry this merchandise is stock of. Set by the Merchandise Service when the entry is saved,
+     * and by ProductService.linkMerchandise for entries that were stocked before the catalog existed
+     */
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "sku")
+    private Product product;
+
     /** The store that has this batch of merchandise */
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "storeID")
     @NotNull
     private Store store;
 
+    /**
+     * Incremented every time the entry is changed. Saving an entry that changed since it was read fails,
+     * so concurrent changes to the stock are never silently lost
+     */
+    @Version
+    @Column(nullable = false, columnDefinition = "BIGINT NOT NULL DEFAULT 0")
+    private Long version;
+
     /**
      * Empty Constructor for JPA
      */
@@ -245,6 +275,30 @@ public class Merchandise extends DomainObject {
         this.store = store;
     }
 
+    /**
+     * Get the catalog entry this merchandise is stock of
+     * @return the product, or null if the entry has not been given a SKU yet
+     */
+    public Product getProduct() {
+        return product;
+    }
+
+    /**
+     * Set the catalog entry this merchandise is stock of
+     * @param product the product
+     */
+    public void setProduct(Product product) {
+        this.product = product;
+    }
+
+    /**
+     * Get the version of the entry, which changes every time it is saved
+     * @return the version, or null if the entry has never been saved
+     */
+    public Long getVersion() {
+        return version;
+    }
+
     /**
      * Get a string representation of this merchandise with all of it's attributes
      * @return a string representation of the merchandise
@@ -0,0 +1,75 @@
+package CSC540.WolfWR.models;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+
+/**
+ * Product is an entry in the company-wide catalog: one thing a supplier sells, identified by a numeric SKU.
+ * Merchandise entries are the stock of a product held at one store from one shipment, so every store
+ * carrying the same product points at the same catalog entry.
+ *
+ * A product is its name and supplier, so the pair is unique. Stock is matched across stores by SKU
+ * instead of comparing names.
+ *
+ * @author Brandon Jiang
+ */
+@Entity
+@Table(indexes = {
+        @Index(name = "idx_product_name_supplier", columnList = "productName, supplierID", unique = true)})
+public class Product extends DomainObject {
+
+    /** Stock keeping unit, the unique identifier for a product in the catalog */
+    @Id
+    private long sku;
+
+    /** The name of the product */
+    @Column(nullable = false)
+    private String productName;
+
+    /** The company that sells this product */
+    @ManyToOne(fetch = FetchType.LAZY)
+    @NotNull
+    @JoinColumn(name = "supplierID", nullable = false)
+    private Supplier supplier;
+
+    /**
+     * Empty Constructor for JPA
+     */
+    public Product() {}
+
+    /**
+     * Constructor for a catalog entry
+     * @param sku unique identifier for the product
+     * @param productName the name of the product
+     * @param supplier the company that sells the product
+     */
+    public Product(long sku, String productName, Supplier supplier) {
+        this.sku = sku;
+        this.productName = productName;
+        this.supplier = supplier;
+    }
+
+    /**
+     * Get the SKU
+     * @return the SKU
+     */
+    public long getSku() {
+        return sku;
+    }
+
+    /**
+     * Get the product name
+     * @return the product name
+     */
+    public String getProductName() {
+        return productName;
+    }
+
+    /**
+     * Get the supplier of the product
+     * @return the supplier
+     */
+    public Supplier getSupplier() {
+        return supplier;
+    }
+}
@@ -0,0 +1,103 @@
+package CSC540.WolfWR.models;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+
+/**
+ * RewardsRun is the checkpoint of a year-end rewards run. Members are processed in ID order, in chunks,
+ * and the highest member ID finished is saved with each chunk. A run that stops part way through
+ * picks up after that member the next time it is started.
+ *
+ * @author Brandon Jiang
+ */
+@Entity
+@Table(name = "rewards_run")
+public class RewardsRun extends DomainObject {
+
+    /** The last month of the rewards year, as yyyymm */
+    @Id
+    @Column(name = "period")
+    private int period;
+
+    /** The highest member ID whose rewards have been computed, 0 before the first chunk */
+    @NotNull
+    @Column(name = "last_member_id", nullable = false)
+    private long lastMemberID;
+
+    /** Number of members whose rewards have been computed */
+    @NotNull
+    @Column(name = "members_processed", nullable = false)
+    private long membersProcessed;
+
+    /** True once every active member has been processed */
+    @NotNull
+    @Column(name = "completed", nullable = false)
+    private boolean completed;
+
+    /** Empty constructor for JPA */
+    public RewardsRun() {}
+
+    /**
+     * Constructor for a run that has not started
+     * @param period the last month of the rewards year, as yyyymm
+     */
+    public RewardsRun(int period) {
+        this.period = period;
+    }
+
+    /**
+     * Get the last month of the rewards year
+     * @return the month as yyyymm
+     */
+    public int getPeriod() {
+        return period;
+    }
+
+    /**
+     * Get the highest member ID finished
+     * @return the member ID, 0 if no chunk has finished
+     */
+    public long getLastMemberID() {
+        return lastMemberID;
+    }
+
+    /**
+     * Set the highest member ID finished
+     * @param lastMemberID the new member ID
+     */
+    public void setLastMemberID(long lastMemberID) {
+        this.lastMemberID = lastMemberID;
+    }
+
+    /**
+     * Get the number of members processed
+     * @return the number of members
+     */
+    public long getMembersProcessed() {
+        return membersProcessed;
+    }
+
+    /**
+     * Set the number of members processed
+     * @param membersProcessed the new number of members
+     */
+    public void setMembersProcessed(long membersProcessed) {
+        this.membersProcessed = membersProcessed;
+    }
+
+    /**
+     * Check if every member has been processed
+     * @return true if the run is complete
+     */
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    /**
+     * Set if every member has been processed
+     * @param completed true if the run is complete
+     */
+    public void setCompleted(boolean completed) {
+        this.completed = completed;
+    }
+}
@@ -14,6 +14,7 @@ import jakarta.persistence.*;
  * @author Janelle Correia
  */
 @Entity
+@Table(indexes = {@Index(name = "idx_staff_store_title", columnList = "storeID, title")})
 // Inheritance tag will save all applicable attributes to this table and
 // the full entry to the child table
 // @Inheritance(strategy = InheritanceType.JOINED) Artifact from previous approach, left in for learning purposes
@@ -28,7 +29,7 @@ public class Staff extends DomainObject{
     /**
      * The store that the staff member works at
      */
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "storeID", nullable = false)
     private Store store;
 
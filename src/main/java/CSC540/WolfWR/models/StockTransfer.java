@@ -0,0 +1,161 @@
+package CSC540.WolfWR.models;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+
+import java.time.LocalDate;
+
+/**
+ * StockTransfer records units of merchandise moved from one store to another.
+ * Transfers are only ever added, so the ledger shows every move made between stores.
+ * Transfers made together share a batch ID.
+ *
+ * Stores and merchandise are kept as plain IDs along with the product name,
+ * so the record stays readable after the merchandise entries are gone.
+ *
+ * @author Brandon Jiang
+ */
+@Entity
+@Table(name = "stock_transfer", indexes = {
+        @Index(name = "idx_stock_transfer_from_date", columnList = "fromStoreID, transferDate"),
+        @Index(name = "idx_stock_transfer_to_date", columnList = "toStoreID, transferDate"),
+        @Index(name = "idx_stock_transfer_batch", columnList = "batchID")})
+public class StockTransfer extends DomainObject {
+
+    /** Unique identifier for the transfer */
+    @Id
+    private long transferID;
+
+    /** Identifier shared by every transfer made together */
+    @NotNull
+    private long batchID;
+
+    /** The store the units left */
+    @NotNull
+    private long fromStoreID;
+
+    /** The store the units arrived at */
+    @NotNull
+    private long toStoreID;
+
+    /** The merchandise entry the units were taken from */
+    @NotNull
+    private long fromProductID;
+
+    /** The merchandise entry the units were added to */
+    @NotNull
+    private long toProductID;
+
+    /** The name of the product moved */
+    @Column(nullable = false)
+    private String productName;
+
+    /** The number of units moved */
+    @Min(1)
+    @NotNull
+    private int quantity;
+
+    /** The day the units were moved */
+    @NotNull
+    @Column(nullable = false)
+    private LocalDate transferDate;
+
+    /**
+     * Empty Constructor for JPA
+     */
+    public StockTransfer() {}
+
+    /**
+     * Constructor for units moved between two merchandise entries
+     * @param transferID unique identifier for the transfer
+     * @param batchID identifier shared by every transfer made together
+     * @param from the merchandise entry the units were taken from
+     * @param to the merchandise entry the units were added to
+     * @param quantity the number of units moved
+     * @param transferDate the day the units were moved
+     */
+    public StockTransfer(long transferID, long batchID, Merchandise from, Merchandise to, int quantity, LocalDate transferDate) {
+        this.transferID = transferID;
+        this.batchID = batchID;
+        this.fromStoreID = from.getStore().getStoreID();
+        this.toStoreID = to.getStore().getStoreID();
+        this.fromProductID = from.getProductID();
+        this.toProductID = to.getProductID();
+        this.productName = from.getProductName();
+        this.quantity = quantity;
+        this.transferDate = transferDate;
+    }
+
+    /**
+     * Get the transfer ID
+     * @return the transfer ID
+     */
+    public long getTransferID() {
+        return transferID;
+    }
+
+    /**
+     * Get the ID shared by every transfer made together
+     * @return the batch ID
+     */
+    public long getBatchID() {
+        return batchID;
+    }
+
+    /**
+     * Get the ID of the store the units left
+     * @return the store ID
+     */
+    public long getFromStoreID() {
+        return fromStoreID;
+    }
+
+    /**
+     * Get the ID of the store the units arrived at
+     * @return the store ID
+     */
+    public long getToStoreID() {
+        return toStoreID;
+    }
+
+    /**
+     * Get the ID of the merchandise entry the units were taken from
+     * @return the product ID
+     */
+    public long getFromProductID() {
+        return fromProductID;
+    }
+
+    /**
+     * Get the ID of the merchandise entry the units were added to
+     * @return the product ID
+     */
+    public long getToProductID() {
+        return toProductID;
+    }
+
+    /**
+     * Get the name of the product moved
+     * @return the product name
+     */
+    public String getProductName() {
+        return productName;
+    }
+
+    /**
+     * Get the number of units moved
+     * @return the quantity
+     */
+    public int getQuantity() {
+        return quantity;
+    }
+
+    /**
+     * Get the day the units were moved
+     * @return the transfer date
+     */
+    public LocalDate getTransferDate() {
+        return transferDate;
+    }
+}
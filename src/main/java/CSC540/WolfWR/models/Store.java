@@ -21,7 +21,7 @@ public class Store extends DomainObject {
     /**
      * The manager of the store
      */
-    @OneToOne
+    @OneToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "managerID")
     private Staff manager;
 
@@ -11,12 +11,23 @@ import java.util.*;
  * Transaction keeps track of purchases made by members.
  * Transactions maintain a list of merchandise purchased, at which store, and by which member.
  * It also keeps track of the total price, although that is tabulated elsewhere to account from discounts.
- * In its current implementation, to purchase more than one of the same item, it will need to be added
- * to the transactions that many times. Each entry only adds one unit of the merchandise.
+ * Each entry in the list is a TransactionItem holding the merchandise and the number of units bought,
+ * so buying more than one of the same item takes a single entry.
+ *
+ * Associations are loaded lazily. Screens that need them ask for them through the named entity graphs below
+ * or through projection queries, so loading a list of transactions does not select each store, member and cashier.
+ *
+ * Every query on transactions filters by member, store, or purchase date, so each has an index
+ * led by that column with the purchase date next, letting date ranges be read in order.
  *
  * @author Brandon Jiang
  */
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_transaction_member_date", columnList = "member_id, purchaseDate"),
+        @Index(name = "idx_transaction_store_date", columnList = "storeID, purchaseDate"),
+        @Index(name = "idx_transaction_date", columnList = "purchaseDate, storeID")})
+@NamedEntityGraph(name = "Transaction.history", attributeNodes = {@NamedAttributeNode("store")})
 public class Transaction extends DomainObject {
     /**
      * Unique identifier for transactions
@@ -27,7 +38,7 @@ public class Transaction extends DomainObject {
     /**
      * The store the purchase was made
      */
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "storeID")
     @NotNull
     private Store store;
@@ -35,7 +46,7 @@ public class Transaction extends DomainObject {
     /**
      * The member making the purchase / the membership used
      */
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "member_id")
     @NotNull
     private Member member;
@@ -44,7 +55,7 @@ public class Transaction extends DomainObject {
     /**
      * Staff member that completed the transaction
      */
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "cashierID")
     @NotNull
     private Staff cashierID;
@@ -64,9 +75,9 @@ public class Transaction extends DomainObject {
 //    private List<TransactionItem> productList;
 
     /**
-     * List of merchandise purchased
+     * List of merchandise purchased, stored in the transaction_item table
      */
-    @OneToMany(cascade = CascadeType.ALL)
+    @OneToMany(mappedBy = "transaction", cascade = CascadeType.ALL)
     private List<TransactionItem> productList;
 
     /**
@@ -236,6 +247,15 @@ public class Transaction extends DomainObject {
         this.productList.add(it);
     }
 
+    /**
+     * Add several units of a merchandise entry to the transaction
+     * @param m the merchandise being purchased
+     * @param quantity the number of units purchased
+     */
+    public void addMerchandise(Merchandise m, int quantity){
+        this.productList.add(new TransactionItem(this, m, quantity));
+    }
+
 
 //    public List<Merchandise> getProductList() {
 //        return productList;
@@ -6,7 +6,7 @@ import java.util.Objects;
 
 /**
  * TransactionItem is a stand in for the join table between Transactions and Merchandise.
- * Each entry represents only one unit of the merchandise
+ * Each entry represents every unit of one merchandise entry bought in the transaction
  *
  * @author Brandon Jiang
  */
@@ -36,13 +36,20 @@ public class TransactionItem extends DomainObject{
     private Transaction transaction;
 
     /**
-     * The merchandise being purchased
+     * The merchandise being purchased.
+     * Not cascaded, stock is only changed through the inventory updates in the services
      */
-    @OneToOne(cascade = CascadeType.ALL)
+    @OneToOne
     @MapsId
     @JoinColumn(name = "productID")
     private Merchandise merch;
 
+    /**
+     * The number of units purchased. Existing rows from before quantities were stored count as one unit
+     */
+    @Column(name = "quantity", nullable = false, columnDefinition = "INT NOT NULL DEFAULT 1")
+    private int quantity = 1;
+
     /**
      * Empty constructor for JPA
      */
@@ -58,6 +65,17 @@ public class TransactionItem extends DomainObject{
         setMerch(merch);
     }
 
+    /**
+     * Constructor for more than one unit of the merchandise
+     * @param transaction The transaction that corresponds to this entry
+     * @param merch The merchandise being purchased
+     * @param quantity The number of units purchased
+     */
+    public TransactionItem(Transaction transaction, Merchandise merch, int quantity) {
+        this(transaction, merch);
+        setQuantity(quantity);
+    }
+
     /**
      * Get the ID of the transaction
      * @return the transaction ID
@@ -124,6 +142,22 @@ public class TransactionItem extends DomainObject{
         setProductID(merch.getProductID());
     }
 
+    /**
+     * Get the number of units purchased
+     * @return the quantity
+     */
+    public int getQuantity() {
+        return quantity;
+    }
+
+    /**
+     * Set the number of units purchased
+     * @param quantity the new quantity
+     */
+    public void setQuantity(int quantity) {
+        this.quantity = quantity;
+    }
+
     /**
      * Compares two TransactionItems. TransactionItems are considered the same if they are part of the same
      * transaction and have the same merchandise
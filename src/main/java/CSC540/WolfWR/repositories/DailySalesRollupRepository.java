@@ -0,0 +1,92 @@
+package CSC540.WolfWR.repositories;
+
+import CSC540.WolfWR.models.DailySalesRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Connection between the database and the program code for the daily sales rollup
+ * @author Brandon Jiang
+ */
+@Repository
+public interface DailySalesRollupRepository extends JpaRepository<DailySalesRollup, DailySalesRollup.RollupID> {
+
+    /**
+     * Add one transaction to the totals for a store and day, creating the row if it is the first sale that day.
+     * The update is done by the database so concurrent purchases never lose a sale
+     * @param storeID the store the purchase was made at
+     * @param date the day the purchase was made
+     * @param amount the total price of the transaction
+     * @return the number of rows changed
+     */
+    @Modifying
+    @Query(value = "INSERT INTO daily_sales_rollup (storeid, sales_date, transaction_count, revenue) " +
+            "VALUES (:storeID, :date, 1, :amount) " +
+            "ON DUPLICATE KEY UPDATE transaction_count = transaction_count + 1, revenue = revenue + :amount", nativeQuery = true)
+    public int recordSale(@Param("storeID") Long storeID, @Param("date") LocalDate date, @Param("amount") double amount);
+
+    /**
+     * Remove every row from the rollup
+     * @return the number of rows removed
+     */
+    @Modifying
+    @Query(value = "DELETE FROM daily_sales_rollup", nativeQuery = true)
+    public int clear();
+
+    /**
+     * Fill the rollup from the full transaction history. Should be run on an empty rollup
+     * @return the number of rows created
+     */
+    @Modifying
+    @Query(value = "INSERT INTO daily_sales_rollup (storeid, sales_date, transaction_count, revenue) " +
+            "SELECT storeid, purchase_date, COUNT(*), SUM(total_price) FROM transaction GROUP BY storeid, purchase_date", nativeQuery = true)
+    public int rebuildFromTransactions();
+
+    /**
+     * Total the sales at a store in a time frame from the rollup
+     * @param start the first day of the time frame (inclusive)
+     * @param end the first day after the time frame (exclusive)
+     * @param storeID the store to search for
+     * @return the number of transactions and their total
+     */
+    @Query("SELECT COALESCE(SUM(r.transactionCount), 0) AS transactionCount, COALESCE(SUM(r.revenue), 0.0) AS revenue " +
+            "FROM DailySalesRollup r WHERE r.salesDate >= :start AND r.salesDate < :end AND r.storeID = :storeID")
+    public TransactionRepository.SalesSummary summarizeStoreSales(@Param("start") LocalDate start, @Param("end") LocalDate end, @Param("storeID") Long storeID);
+
+    /**
+     * Total the sales company-wide in a time frame from the rollup
+     * @param start the first day of the time frame (inclusive)
+     * @param end the first day after the time frame (exclusive)
+     * @return the number of transactions and their total
+     */
+    @Query("SELECT COALESCE(SUM(r.transactionCount), 0) AS transactionCount, COALESCE(SUM(r.revenue), 0.0) AS revenue " +
+            "FROM DailySalesRollup r WHERE r.salesDate >= :start AND r.salesDate < :end")
+    public TransactionRepository.SalesSummary summarizeSales(@Param("start") LocalDate start, @Param("end") LocalDate end);
+
+    /**
+     * Get the daily totals for a store in a time frame
+     * @param start the first day of the time frame (inclusive)
+     * @param end the first day after the time frame (exclusive)
+     * @param storeID the store to search for
+     * @return one row per day that had sales, in date order
+     */
+    @Query("SELECT r.storeID AS storeID, r.salesDate AS purchaseDate, r.transactionCount AS transactionCount, r.revenue AS revenue " +
+            "FROM DailySalesRollup r WHERE r.salesDate >= :start AND r.salesDate < :end AND r.storeID = :storeID ORDER BY r.salesDate")
+    public List<TransactionRepository.DailySales> findStoreSalesByDay(@Param("start") LocalDate start, @Param("end") LocalDate end, @Param("storeID") Long storeID);
+
+    /**
+     * Get the daily totals for every store in a time frame
+     * @param start the first day of the time frame (inclusive)
+     * @param end the first day after the time frame (exclusive)
+     * @return one row per store and day that had sales, in date order
+     */
+    @Query("SELECT r.storeID AS storeID, r.salesDate AS purchaseDate, r.transactionCount AS transactionCount, r.revenue AS revenue " +
+            "FROM DailySalesRollup r WHERE r.salesDate >= :start AND r.salesDate < :end ORDER BY r.salesDate, r.storeID")
+    public List<TransactionRepository.DailySales> findSalesByStoreAndDay(@Param("start") LocalDate start, @Param("end") LocalDate end);
+}
@@ -0,0 +1,124 @@
+package CSC540.WolfWR.repositories;
+
+import CSC540.WolfWR.models.Delivery;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Connection between the database and the program code for the delivery ledger
+ * @author Brandon Jiang
+ */
+@Repository
+public interface DeliveryRepository extends JpaRepository<Delivery, Long> {
+
+    /** Merchandise in stock with no delivery recorded that was not created by a transfer between stores */
+    String MISSING_DELIVERY = "m.supplierid IS NOT NULL AND m.production_date IS NOT NULL AND m.quantity > 0 " +
+            "AND NOT EXISTS (SELECT 1 FROM delivery d WHERE d.productid = m.productid) " +
+            "AND NOT EXISTS (SELECT 1 FROM stock_transfer t WHERE t.to_productid = m.productid)";
+
+    /**
+     * Get the highest delivery ID
+     * @return the highest delivery ID, or 0 if there are no deliveries
+     */
+    @Query(value = "SELECT COALESCE(MAX(deliveryid), 0) FROM delivery", nativeQuery = true)
+    public long getMaxID();
+
+    /**
+     * Record one delivery, using its current quantity, buy price, and production date, for every merchandise entry
+     * that has no delivery recorded and was not created by a transfer between stores.
+     * Used to fill the ledger for merchandise stocked without going through the services.
+     * At most count entries are recorded, in product ID order, so the IDs never run past the range reserved for them
+     * @param firstID the first delivery ID reserved for the new deliveries
+     * @param count the number of delivery IDs reserved
+     * @return the number of deliveries recorded
+     */
+    @Modifying
+    @Query(value = "INSERT INTO delivery (deliveryid, supplierid, storeid, productid, product_name, quantity, unit_cost, delivery_date) " +
+            "SELECT :firstID - 1 + ROW_NUMBER() OVER (ORDER BY m.productid), m.supplierid, m.storeid, m.productid, m.product_name, " +
+            "m.quantity, m.buy_price, m.production_date FROM merchandise m WHERE " + MISSING_DELIVERY +
+            " ORDER BY m.productid LIMIT :count", nativeQuery = true)
+    public int backfillFromMerchandise(@Param("firstID") long firstID, @Param("count") long count);
+
+    /**
+     * Count the merchandise entries in stock with no delivery recorded that backfillFromMerchandise would record
+     * @return the number of entries missing a delivery
+     */
+    @Query(value = "SELECT COUNT(*) FROM merchandise m WHERE " + MISSING_DELIVERY, nativeQuery = true)
+    public long countMissingFromMerchandise();
+
+    /**
+     * Total the deliveries a supplier made in a time frame for each product, computed by the database
+     * @param supplierID the supplier to look for
+     * @param start the first day of the time frame (inclusive)
+     * @param end the first day after the time frame (exclusive)
+     * @return one line per product, ordered by product name
+     */
+    @Query("SELECT s.supplierID AS supplierID, s.supplierName AS supplierName, d.productName AS productName, " +
+            "COUNT(d) AS deliveries, COALESCE(SUM(d.quantity), 0) AS quantity, COALESCE(SUM(d.unitCost * d.quantity), 0.0) AS total " +
+            "FROM Delivery d JOIN d.supplier s " +
+            "WHERE s.supplierID = :supplierID AND d.deliveryDate >= :start AND d.deliveryDate < :end " +
+            "GROUP BY s.supplierID, s.supplierName, d.productName ORDER BY d.productName")
+    public List<SupplierBillLine> supplierBill(@Param("supplierID") Long supplierID, @Param("start") LocalDate start,
+                                               @Param("end") LocalDate end);
+
+    /**
+     * Total the deliveries every supplier made in a time frame for each product, computed by the database
+     * @param start the first day of the time frame (inclusive)
+     * @param end the first day after the time frame (exclusive)
+     * @return one line per supplier and product, ordered by supplier ID and product name
+     */
+    @Query("SELECT s.supplierID AS supplierID, s.supplierName AS supplierName, d.productName AS productName, " +
+            "COUNT(d) AS deliveries, COALESCE(SUM(d.quantity), 0) AS quantity, COALESCE(SUM(d.unitCost * d.quantity), 0.0) AS total " +
+            "FROM Delivery d JOIN d.supplier s " +
+            "WHERE d.deliveryDate >= :start AND d.deliveryDate < :end " +
+            "GROUP BY s.supplierID, s.supplierName, d.productName ORDER BY s.supplierID, d.productName")
+    public List<SupplierBillLine> allSuppliersBill(@Param("start") LocalDate start, @Param("end") LocalDate end);
+
+    /**
+     * SupplierBillLine is what the company owes a supplier for one product delivered over a time frame
+     */
+    public interface SupplierBillLine {
+
+        /**
+         * Get the ID of the supplier
+         * @return the supplier ID
+         */
+        Long getSupplierID();
+
+        /**
+         * Get the name of the supplier
+         * @return the supplier name
+         */
+        String getSupplierName();
+
+        /**
+         * Get the name of the product delivered
+         * @return the product name
+         */
+        String getProductName();
+
+        /**
+         * Get the number of deliveries of the product
+         * @return the number of deliveries
+         */
+        Long getDeliveries();
+
+        /**
+         * Get the total number of units delivered
+         * @return the number of units
+         */
+        Long getQuantity();
+
+        /**
+         * Get the total owed for the product, the unit cost times the quantity of each delivery added up
+         * @return the amount owed
+         */
+        Double getTotal();
+    }
+}
@@ -1,10 +1,8 @@
 package CSC540.WolfWR.repositories;
 
 import CSC540.WolfWR.models.Discount;
-import CSC540.WolfWR.models.Merchandise;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
-import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
@@ -18,20 +16,41 @@ import java.util.List;
 public interface DiscountRepository extends JpaRepository<Discount, Discount.DiscountID> {
 
     /**
-     * Custom query to find all discounts that are active on a certain date
-     * @param date the reference date
-     * @return all discounts that are active on this day
+     * Custom query to read the dates and percentage of every discount without loading any Merchandise.
+     * Used to build the in-memory discount index
+     * @return every discount in the table
      */
-    @Query(value = "SELECT * FROM discount WHERE :date BETWEEN start AND end ", nativeQuery = true)
-    public List<Discount> findAllByDate(@Param("date")LocalDate date);
+    @Query("SELECT d.productID.productID AS productID, d.start AS startDate, d.end AS endDate, " +
+            "d.discountPercentage AS discountPercentage FROM Discount d")
+    public List<DiscountInterval> findAllIntervals();
 
     /**
-     * Custom query to find discounts for a product that are active on a certain date
-     * @param productID the product on sale
-     * @param date the date to search
-     * @return Discounts applying to the product on the date
+     * DiscountInterval is a read-only view of when a discount is active and how much it takes off
      */
-    @Query(value = "SELECT * FROM discount WHERE productID = :productID AND :date BETWEEN start AND end", nativeQuery = true)
-    public List<Discount> findByProductIDAndDate(@Param("productID") Long productID, @Param("date") LocalDate date);
+    public interface DiscountInterval {
 
+        /**
+         * Get the ID of the discounted product
+         * @return the product ID
+         */
+        Long getProductID();
+
+        /**
+         * Get the first day the discount is active
+         * @return the start date (inclusive)
+         */
+        LocalDate getStartDate();
+
+        /**
+         * Get the last day the discount is active
+         * @return the end date (inclusive)
+         */
+        LocalDate getEndDate();
+
+        /**
+         * Get the percentage taken off of the product
+         * @return the discount percentage
+         */
+        Integer getDiscountPercentage();
+    }
 }
@@ -0,0 +1,56 @@
+package CSC540.WolfWR.repositories;
+
+import CSC540.WolfWR.models.IdSequence;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Connection between the database and the program code for ID sequences
+ * @author Brandon Jiang
+ */
+@Repository
+public interface IdSequenceRepository extends JpaRepository<IdSequence, String> {
+
+    /**
+     * Create the sequence row if no other instance has created it yet
+     * @param name the name of the sequence
+     * @param seed the first value the sequence should hand out
+     * @return the number of rows created (0 if the sequence already existed)
+     */
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO id_sequence (name, next_value) VALUES (:name, :seed)", nativeQuery = true)
+    public int createIfAbsent(@Param("name") String name, @Param("seed") long seed);
+
+    /**
+     * Move the sequence forward by a block of IDs.
+     * The row stays locked until the surrounding transaction commits, so no two callers can reserve the same block
+     * @param name the name of the sequence
+     * @param blockSize how many IDs to reserve
+     * @return the number of rows updated (0 if the sequence does not exist)
+     */
+    @Modifying
+    @Query(value = "UPDATE id_sequence SET next_value = next_value + :blockSize WHERE name = :name", nativeQuery = true)
+    public int reserve(@Param("name") String name, @Param("blockSize") long blockSize);
+
+    /**
+     * Get the first unreserved value of a sequence
+     * @param name the name of the sequence
+     * @return the next unreserved value, or null if the sequence does not exist
+     */
+    @Query(value = "SELECT next_value FROM id_sequence WHERE name = :name", nativeQuery = true)
+    public Long nextValue(@Param("name") String name);
+
+    /**
+     * Move the sequence forward so it never hands out a value below the given one.
+     * Has no effect if the sequence is already past that value
+     * @param name the name of the sequence
+     * @param minNext the lowest value the sequence may hand out next
+     * @return the number of rows updated (0 if the sequence does not exist)
+     */
+    @Modifying
+    @Query(value = "UPDATE id_sequence SET next_value = GREATEST(next_value, :minNext) WHERE name = :name", nativeQuery = true)
+    public int raiseTo(@Param("name") String name, @Param("minNext") long minNext);
+}
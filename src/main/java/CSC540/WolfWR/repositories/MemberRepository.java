@@ -1,8 +1,11 @@
 package CSC540.WolfWR.repositories;
 
 import CSC540.WolfWR.models.Member;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -16,11 +19,11 @@ import java.util.List;
 public interface MemberRepository extends JpaRepository<Member, Long> {
 
     /**
-     * Custom query to find the IDs of all members in the system
-     * @return list of member IDs
+     * Custom query to find the highest member ID in the system
+     * @return the highest member ID, or 0 if there are no members
      */
-    @Query(value = "SELECT memberid FROM members", nativeQuery = true)
-    public List<Long> getIDs();
+    @Query(value = "SELECT COALESCE(MAX(memberid), 0) FROM members", nativeQuery = true)
+    public long getMaxID();
 
     /**
      * Custom query to find members with active memberships
@@ -28,4 +31,62 @@ public interface MemberRepository extends JpaRepository<Member, Long> {
      */
     @Query(value = "SELECT * from members WHERE is_active = 1", nativeQuery = true)
     public List<Member> getMembers();
+
+    /**
+     * Get the next page of members in ID order, starting after the last member of the previous page
+     * @param after the highest member ID already listed, 0 for the first page
+     * @param activeOnly true to leave out cancelled memberships
+     * @param limit the most members to return
+     * @return up to limit members with IDs above after
+     */
+    @Query("SELECT m FROM Member m WHERE m.id > :after AND (:activeOnly = false OR m.isActive = true) ORDER BY m.id")
+    public List<Member> findPage(@Param("after") long after, @Param("activeOnly") boolean activeOnly, Limit limit);
+
+    /**
+     * Get the next page of members whose first name, last name, email, or phone number starts with a prefix
+     * @param prefix the pattern to match, ending in '%'
+     * @param after the highest member ID already listed, 0 for the first page
+     * @param activeOnly true to leave out cancelled memberships
+     * @param limit the most members to return
+     * @return up to limit matching members with IDs above after
+     */
+    @Query("SELECT m FROM Member m WHERE m.id > :after AND (:activeOnly = false OR m.isActive = true) "
+            + "AND (m.firstName LIKE :prefix OR m.lastName LIKE :prefix OR m.email LIKE :prefix OR m.phoneNo LIKE :prefix) "
+            + "ORDER BY m.id")
+    public List<Member> searchPage(@Param("prefix") String prefix, @Param("after") long after,
+                                   @Param("activeOnly") boolean activeOnly, Limit limit);
+
+    /**
+     * Get the IDs of active members in ID order, one chunk at a time
+     * @param after the highest ID in the previous chunk, 0 for the first chunk
+     * @param limit the most IDs to return
+     * @return up to limit IDs of active members above after
+     */
+    @Query("SELECT m.id FROM Member m WHERE m.id > :after AND m.isActive = true ORDER BY m.id")
+    public List<Long> findActiveIDs(@Param("after") long after, Limit limit);
+
+    /**
+     * Find members by phone number using the phone number index
+     * @param phoneNo the phone number to look for
+     * @return list of members with that phone number
+     */
+    @Query("SELECT m FROM Member m WHERE m.phoneNo = :phoneNo ORDER BY m.id")
+    public List<Member> findByPhone(@Param("phoneNo") String phoneNo);
+
+    /**
+     * Strip everything but the digits from phone numbers saved before they were stored as digits only
+     * @return the number of members whose phone number changed
+     */
+    @Modifying
+    @Query(value = "UPDATE members SET phone_no = REGEXP_REPLACE(phone_no, '[^0-9]', '') "
+            + "WHERE REGEXP_LIKE(phone_no, '[^0-9]')", nativeQuery = true)
+    public int normalizePhoneNumbers();
+
+    /**
+     * Find members by email address using the email index
+     * @param email the email address to look for
+     * @return list of members with that email address
+     */
+    @Query("SELECT m FROM Member m WHERE m.email = :email ORDER BY m.id")
+    public List<Member> findByEmail(@Param("email") String email);
 }
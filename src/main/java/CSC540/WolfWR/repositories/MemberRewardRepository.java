@@ -0,0 +1,61 @@
+package CSC540.WolfWR.repositories;
+
+import CSC540.WolfWR.models.MemberReward;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Connection between the database and the program code for rewards computed by the year-end rewards run
+ * @author Brandon Jiang
+ */
+@Repository
+public interface MemberRewardRepository extends JpaRepository<MemberReward, MemberReward.RewardID> {
+
+    /**
+     * Remove the rewards already computed for a range of members, so a chunk can be computed again
+     * @param period the last month of the rewards year, as yyyymm
+     * @param after the member ID before the range (exclusive)
+     * @param upTo the last member ID in the range (inclusive)
+     * @return the number of rows removed
+     */
+    @Modifying
+    @Query(value = "DELETE FROM member_reward WHERE period = :period AND member_id > :after AND member_id <= :upTo",
+            nativeQuery = true)
+    public int clearRange(@Param("period") int period, @Param("after") long after, @Param("upTo") long upTo);
+
+    /**
+     * Compute the rewards of every active member in a range of IDs with one grouped query over the
+     * member rewards ledger, and save them. Members with no purchases are saved with a total of 0
+     * @param period the last month of the rewards year, as yyyymm
+     * @param firstPeriod the first month of the rewards year, as yyyymm
+     * @param after the member ID before the range (exclusive)
+     * @param upTo the last member ID in the range (inclusive)
+     * @param platinum rewards percentage for Platinum members
+     * @param gold rewards percentage for Gold members
+     * @param silver rewards percentage for Silver members
+     * @return the number of members saved
+     */
+    @Modifying
+    @Query(value = "INSERT INTO member_reward (member_id, period, total_spent, reward_rate, reward) " +
+            "SELECT r.memberid, :period, r.total, r.rate, r.total * r.rate / 100 FROM (" +
+            "SELECT m.memberid, COALESCE(SUM(l.total_spent), 0) AS total, " +
+            "CASE m.membership_level WHEN 'PLATINUM' THEN :platinum WHEN 'GOLD' THEN :gold WHEN 'SILVER' THEN :silver ELSE 0 END AS rate " +
+            "FROM members m LEFT JOIN member_rewards_ledger l " +
+            "ON l.member_id = m.memberid AND l.period >= :firstPeriod AND l.period <= :period " +
+            "WHERE m.is_active = TRUE AND m.memberid > :after AND m.memberid <= :upTo " +
+            "GROUP BY m.memberid, m.membership_level) r", nativeQuery = true)
+    public int computeRange(@Param("period") int period, @Param("firstPeriod") int firstPeriod,
+                            @Param("after") long after, @Param("upTo") long upTo, @Param("platinum") double platinum,
+                            @Param("gold") double gold, @Param("silver") double silver);
+
+    /**
+     * Total the rewards handed out for a rewards year
+     * @param period the last month of the rewards year, as yyyymm
+     * @return the total rewards, 0 if none were computed
+     */
+    @Query("SELECT COALESCE(SUM(r.reward), 0.0) FROM MemberReward r WHERE r.period = :period")
+    public double totalRewards(@Param("period") int period);
+}
@@ -0,0 +1,60 @@
+package CSC540.WolfWR.repositories;
+
+import CSC540.WolfWR.models.MemberRewardsLedger;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Connection between the database and the program code for the member rewards ledger
+ * @author Brandon Jiang
+ */
+@Repository
+public interface MemberRewardsLedgerRepository extends JpaRepository<MemberRewardsLedger, MemberRewardsLedger.LedgerID> {
+
+    /**
+     * Add one purchase to a member's totals for a month, creating the row if it is their first purchase that month.
+     * The update is done by the database so concurrent purchases never lose a sale
+     * @param memberID the member who made the purchase
+     * @param period the month the purchase was made in, as yyyymm
+     * @param amount the total price of the transaction
+     * @return the number of rows changed
+     */
+    @Modifying
+    @Query(value = "INSERT INTO member_rewards_ledger (member_id, period, purchase_count, total_spent) " +
+            "VALUES (:memberID, :period, 1, :amount) " +
+            "ON DUPLICATE KEY UPDATE purchase_count = purchase_count + 1, total_spent = total_spent + :amount", nativeQuery = true)
+    public int recordPurchase(@Param("memberID") Long memberID, @Param("period") int period, @Param("amount") double amount);
+
+    /**
+     * Remove every row from the ledger
+     * @return the number of rows removed
+     */
+    @Modifying
+    @Query(value = "DELETE FROM member_rewards_ledger", nativeQuery = true)
+    public int clear();
+
+    /**
+     * Fill the ledger from the full transaction history. Should be run on an empty ledger
+     * @return the number of rows created
+     */
+    @Modifying
+    @Query(value = "INSERT INTO member_rewards_ledger (member_id, period, purchase_count, total_spent) " +
+            "SELECT member_id, YEAR(purchase_date) * 100 + MONTH(purchase_date), COUNT(*), SUM(total_price) " +
+            "FROM transaction WHERE member_id IS NOT NULL " +
+            "GROUP BY member_id, YEAR(purchase_date) * 100 + MONTH(purchase_date)", nativeQuery = true)
+    public int rebuildFromTransactions();
+
+    /**
+     * Total a member's purchases over a span of months
+     * @param memberID the member to look for
+     * @param firstPeriod the first month to include, as yyyymm
+     * @param lastPeriod the last month to include, as yyyymm
+     * @return the total spent, 0 if the member made no purchases
+     */
+    @Query("SELECT COALESCE(SUM(l.totalSpent), 0.0) FROM MemberRewardsLedger l " +
+            "WHERE l.memberID = :memberID AND l.period >= :firstPeriod AND l.period <= :lastPeriod")
+    public double totalSpent(@Param("memberID") Long memberID, @Param("firstPeriod") int firstPeriod, @Param("lastPeriod") int lastPeriod);
+}
@@ -2,12 +2,15 @@ package CSC540.WolfWR.repositories;
 
 import CSC540.WolfWR.models.Merchandise;
 import CSC540.WolfWR.models.Supplier;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -19,28 +22,77 @@ import java.util.List;
 public interface MerchandiseRepository extends JpaRepository<Merchandise, Long> {
 
     /**
-     * Get all merchandise made in a given timeframe from a specific supplier
-     * @param start the start of the time frame (inclusive)
-     * @param end the end of the time frame (inclusive)
-     * @param supplierID the supplier to look for
-     * @return list of all merchandise entries
+     * Get all the merchandise entries in stock at a given store. The supplier and store are not loaded
+     * @param storeID the store to collect inventory
+     * @return list of all merchandise entries at the store
      */
-    @Query(value = "SELECT * FROM Merchandise WHERE supplierID = :supplierID AND production_date BETWEEN :start AND :end", nativeQuery = true)
-    public List<Merchandise> deliveriesByTime(@Param("start") LocalDate start, @Param("end") LocalDate end, @Param("supplierID")Long supplierID);
+    @Query("SELECT m FROM Merchandise m WHERE m.store.storeID = :store AND m.quantity > 0")
+    public List<Merchandise> storeInventory(@Param("store") Long storeID);
 
+    /**
+     * Get how much of a merchandise entry is in stock, without loading the entity
+     * @param productID the merchandise entry to look for
+     * @return the quantity in stock, or null if there is no such entry
+     */
+    @Query("SELECT m.quantity FROM Merchandise m WHERE m.productID = :productID")
+    public Integer quantityOf(@Param("productID") Long productID);
 
     /**
-     * Get all the merchandise entries for a given store
+     * Find the merchandise entries at a store that are stock of any of the given products, using the store and SKU index
+     * @param storeID the store to look in
+     * @param skus the SKUs of the products to look for
+     * @return the matching entries, ordered by product ID
+     */
+    @Query("SELECT m FROM Merchandise m WHERE m.store.storeID = :store AND m.product.sku IN :skus ORDER BY m.productID")
+    public List<Merchandise> findByStoreAndSkus(@Param("store") Long storeID, @Param("skus") Collection<Long> skus);
+
+    /**
+     * Get the highest merchandise ID
+     * @return the highest merchandise ID, or 0 if there is no merchandise
+     */
+    @Query(value = "SELECT COALESCE(MAX(productid), 0) FROM merchandise", nativeQuery = true)
+    public long getMaxID();
+
+    /**
+     * Get the next page of merchandise in stock at a store in ID order, loading the supplier and store with it
      * @param storeID the store to collect inventory
-     * @return list of all merchandise entries at the store
+     * @param after the highest product ID already listed, 0 for the first page
+     * @param limit the most entries to return
+     * @return up to limit merchandise entries with IDs above after
      */
-    @Query(value = "SELECT * FROM merchandise WHERE storeID = :store AND quantity > 0", nativeQuery = true)
-    public List<Merchandise> storeInventory(@Param("store") Long storeID);
+    @EntityGraph("Merchandise.inventory")
+    @Query("SELECT m FROM Merchandise m WHERE m.store.storeID = :store AND m.quantity > 0 AND m.productID > :after "
+            + "ORDER BY m.productID")
+    public List<Merchandise> storeInventoryPage(@Param("store") Long storeID, @Param("after") long after, Limit limit);
+
+    /**
+     * Get the next page of merchandise in stock at a store whose name starts with a prefix
+     * @param storeID the store to collect inventory
+     * @param prefix the pattern to match, ending in '%'
+     * @param after the highest product ID already listed, 0 for the first page
+     * @param limit the most entries to return
+     * @return up to limit matching merchandise entries with IDs above after
+     */
+    @EntityGraph("Merchandise.inventory")
+    @Query("SELECT m FROM Merchandise m WHERE m.store.storeID = :store AND m.quantity > 0 AND m.productID > :after "
+            + "AND m.productName LIKE :prefix ORDER BY m.productID")
+    public List<Merchandise> searchStoreInventoryPage(@Param("store") Long storeID, @Param("prefix") String prefix,
+                                                      @Param("after") long after, Limit limit);
 
     /**
-     * Get IDs for all merchandise
-     * @return list of all merchandise IDs
+     * Get the next chunk of merchandise in stock that expires by a given day, in expiration date order,
+     * loading the supplier and store with it. Reads a range of the expiration date index, starting after
+     * the last entry of the previous chunk
+     * @param upTo the last expiration date to include
+     * @param afterDate the expiration date of the last entry already read
+     * @param afterID the product ID of the last entry already read
+     * @param limit the most entries to return
+     * @return up to limit merchandise entries, ordered by expiration date then product ID
      */
-    @Query(value = "SELECT productid FROM merchandise", nativeQuery = true)
-    public List<Long> getIDs();
+    @EntityGraph("Merchandise.inventory")
+    @Query("SELECT m FROM Merchandise m WHERE m.expirationDate >= :afterDate AND m.expirationDate <= :upTo "
+            + "AND (m.expirationDate > :afterDate OR m.productID > :afterID) AND m.quantity > 0 "
+            + "ORDER BY m.expirationDate, m.productID")
+    public List<Merchandise> expiringPage(@Param("upTo") LocalDate upTo, @Param("afterDate") LocalDate afterDate,
+                                          @Param("afterID") long afterID, Limit limit);
 }
@@ -0,0 +1,70 @@
+package CSC540.WolfWR.repositories;
+
+import CSC540.WolfWR.models.Product;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Connection between the database and the program code for the product catalog
+ * @author Brandon Jiang
+ */
+@Repository
+public interface ProductRepository extends JpaRepository<Product, Long> {
+
+    /** Merchandise without a SKU whose name and supplier are not in the catalog */
+    String MISSING_PRODUCT = "m.sku IS NULL AND m.supplierid IS NOT NULL AND NOT EXISTS (" +
+            "SELECT 1 FROM product p WHERE p.supplierid = m.supplierid AND LOWER(p.product_name) = LOWER(m.product_name))";
+
+    /**
+     * Get the highest SKU
+     * @return the highest SKU, or 0 if the catalog is empty
+     */
+    @Query(value = "SELECT COALESCE(MAX(sku), 0) FROM product", nativeQuery = true)
+    public long getMaxID();
+
+    /**
+     * Find the catalog entry for a product name from a supplier, using the name and supplier index.
+     * Names are compared with the column's collation, which ignores case in MySQL
+     * @param name the product name
+     * @param supplierID the supplier selling the product
+     * @return the catalog entry, or null if there is none
+     */
+    @Query("SELECT p FROM Product p WHERE p.productName = :name AND p.supplier.supplierID = :supplier")
+    public Product findByNameAndSupplier(@Param("name") String name, @Param("supplier") Long supplierID);
+
+    /**
+     * Add a catalog entry for every product name and supplier found on merchandise not yet in the catalog.
+     * Names that differ only in case are the same product. At most count products are added, in order of the
+     * first merchandise entry of each, so the SKUs never run past the range reserved for them
+     * @param firstID the first SKU reserved for the new products
+     * @param count the number of SKUs reserved
+     * @return the number of products added
+     */
+    @Modifying
+    @Query(value = "INSERT INTO product (sku, product_name, supplierid) " +
+            "SELECT :firstID - 1 + ROW_NUMBER() OVER (ORDER BY MIN(m.productid)), MIN(m.product_name), m.supplierid " +
+            "FROM merchandise m WHERE " + MISSING_PRODUCT + " GROUP BY LOWER(m.product_name), m.supplierid " +
+            "ORDER BY MIN(m.productid) LIMIT :count", nativeQuery = true)
+    public int addMissingFromMerchandise(@Param("firstID") long firstID, @Param("count") long count);
+
+    /**
+     * Count the product names and suppliers found on merchandise not yet in the catalog
+     * @return the number of products addMissingFromMerchandise would add
+     */
+    @Query(value = "SELECT COUNT(*) FROM (SELECT 1 FROM merchandise m WHERE " + MISSING_PRODUCT +
+            " GROUP BY LOWER(m.product_name), m.supplierid) missing", nativeQuery = true)
+    public long countMissingFromMerchandise();
+
+    /**
+     * Point every merchandise entry without a SKU at the catalog entry with its name and supplier
+     * @return the number of merchandise entries changed
+     */
+    @Modifying
+    @Query(value = "UPDATE merchandise SET sku = (SELECT MIN(p.sku) FROM product p " +
+            "WHERE p.supplierid = merchandise.supplierid AND LOWER(p.product_name) = LOWER(merchandise.product_name)) " +
+            "WHERE sku IS NULL", nativeQuery = true)
+    public int linkMerchandise();
+}
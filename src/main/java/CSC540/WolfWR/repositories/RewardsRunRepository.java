@@ -0,0 +1,13 @@
+package CSC540.WolfWR.repositories;
+
+import CSC540.WolfWR.models.RewardsRun;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Connection between the database and the program code for year-end rewards run checkpoints
+ * @author Brandon Jiang
+ */
+@Repository
+public interface RewardsRunRepository extends JpaRepository<RewardsRun, Integer> {
+}
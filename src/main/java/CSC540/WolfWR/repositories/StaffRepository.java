@@ -1,6 +1,7 @@
 package CSC540.WolfWR.repositories;
 
 import CSC540.WolfWR.models.Staff;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -25,11 +26,11 @@ public interface StaffRepository extends JpaRepository<Staff, Long> {
     public List<Staff> findCashier(@Param("storeID") Long storeID, @Param("cashier") int title);
 
     /**
-     * Get all IDs of all staff
-     * @return List of staff IDs
+     * Get the highest staff ID
+     * @return the highest staff ID, or 0 if there is no staff
      */
-    @Query(value = "SELECT staffID FROM staff", nativeQuery = true)
-    public List<Long> getID();
+    @Query(value = "SELECT COALESCE(MAX(staffID), 0) FROM staff", nativeQuery = true)
+    public long getMaxID();
 
     /**
      * Get all staff at a given store
@@ -38,4 +39,27 @@ public interface StaffRepository extends JpaRepository<Staff, Long> {
      */
     @Query(value = "SELECT * FROM staff WHERE storeid = :storeID", nativeQuery = true)
     public List<Staff> findByStore(@Param("storeID") long storeID);
+
+    /**
+     * Get the next page of staff at a given store in ID order
+     * @param storeID the store to search for
+     * @param after the highest staff ID already listed, 0 for the first page
+     * @param limit the most staff to return
+     * @return up to limit staff with IDs above after
+     */
+    @Query("SELECT s FROM Staff s WHERE s.store.storeID = :storeID AND s.staffID > :after ORDER BY s.staffID")
+    public List<Staff> findPageByStore(@Param("storeID") long storeID, @Param("after") long after, Limit limit);
+
+    /**
+     * Get the next page of staff at a given store whose name or email starts with a prefix
+     * @param storeID the store to search for
+     * @param prefix the pattern to match, ending in '%'
+     * @param after the highest staff ID already listed, 0 for the first page
+     * @param limit the most staff to return
+     * @return up to limit matching staff with IDs above after
+     */
+    @Query("SELECT s FROM Staff s WHERE s.store.storeID = :storeID AND s.staffID > :after "
+            + "AND (s.name LIKE :prefix OR s.email LIKE :prefix) ORDER BY s.staffID")
+    public List<Staff> searchPageByStore(@Param("storeID") long storeID, @Param("prefix") String prefix,
+                                         @Param("after") long after, Limit limit);
 }
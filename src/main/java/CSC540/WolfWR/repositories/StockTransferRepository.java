@@ -0,0 +1,28 @@
+package CSC540.WolfWR.repositories;
+
+import CSC540.WolfWR.models.StockTransfer;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Connection between the database and the program code for the stock transfer ledger
+ * @author Brandon Jiang
+ */
+@Repository
+public interface StockTransferRepository extends JpaRepository<StockTransfer, Long> {
+
+    /**
+     * Get the highest transfer ID
+     * @return the highest transfer ID, or 0 if there are no transfers
+     */
+    @Query(value = "SELECT COALESCE(MAX(transferid), 0) FROM stock_transfer", nativeQuery = true)
+    public long getMaxID();
+
+    /**
+     * Get the highest batch ID
+     * @return the highest batch ID, or 0 if there are no transfers
+     */
+    @Query(value = "SELECT COALESCE(MAX(batchid), 0) FROM stock_transfer", nativeQuery = true)
+    public long getMaxBatchID();
+}
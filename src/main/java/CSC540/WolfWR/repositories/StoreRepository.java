@@ -5,8 +5,6 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
-import java.util.List;
-
 /**
  * Connection between the database and the program code for Members
  * @author Brandon Jiang
@@ -15,9 +13,9 @@ import java.util.List;
 public interface StoreRepository extends JpaRepository<Store, Long> {
 
     /**
-     * Get the IDs of all stores
-     * @return a list of all store IDs
+     * Get the highest store ID
+     * @return the highest store ID, or 0 if there are no stores
      */
-    @Query(value =  "SELECT storeID FROM store", nativeQuery = true)
-    public List<Long> getIDs();
+    @Query(value =  "SELECT COALESCE(MAX(storeID), 0) FROM store", nativeQuery = true)
+    public long getMaxID();
 }
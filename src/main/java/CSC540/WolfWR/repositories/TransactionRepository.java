@@ -1,13 +1,20 @@
 package CSC540.WolfWR.repositories;
 
 import CSC540.WolfWR.models.Transaction;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
 
 /**
  * Connection between the database and the program code for Transactions
@@ -17,98 +24,157 @@ import java.util.List;
 public interface TransactionRepository extends JpaRepository<Transaction, Long> {
 
     /**
-     * Gather all transactions made by the member during the rewards period
-     * @param member the member receiving rewards
-     * @param end the last day of the billing period
-     * @return list of all transactions made by the member during the rewards period
+     * Number of rows read from the database at a time for report queries that are read as a stream.
+     * MySQL Connector/J only honors it with useCursorFetch=true on the connection URL, as application.properties
+     * sets; without it the driver reads the whole result before the first row is returned
      */
-    @Query( value = "SELECT * FROM transaction WHERE member_id = :member AND purchase_date BETWEEN DATE_SUB(:end, INTERVAL 1 year) AND :end", nativeQuery = true)
-    public List<Transaction> processRewards(@Param("member") Long member, @Param("end")LocalDate end);
+    String STREAM_FETCH_SIZE = "1000";
 
     /**
      * Get all purchases made the given customer
      * @param memberID the customer that made the purchases
      * @return a list of all transaction made by that customer
      */
-    @Query(value = "SELECT * FROM transaction WHERE member_id = :memberID", nativeQuery = true)
+    @EntityGraph("Transaction.history")
+    @Query("SELECT t FROM Transaction t WHERE t.member.id = :memberID")
     public List<Transaction> getHistoryByCustomer(@Param("memberID") Long memberID);
 
     /**
-     * Get the IDs of all transactions
-     * @return a list with all transaction IDs
+     * Get the highest transaction ID
+     * @return the highest transaction ID, or 0 if there are no transactions
      */
-    @Query(value =  "SELECT transactionid FROM transaction", nativeQuery = true)
-    public List<Long> getIDs();
+    @Query(value =  "SELECT COALESCE(MAX(transactionid), 0) FROM transaction", nativeQuery = true)
+    public long getMaxID();
 
     /**
-     * Get all transaction made on a given day at a specific store
-     * @param start the day the report should be made for
-     * @param storeID the store the purchases were made
-     * @return a list of all transactions that took place at the store on the given day
+     * Count and total the transactions made at a store in a time frame, computed by the database
+     * @param start the first day of the time frame (inclusive)
+     * @param end the first day after the time frame (exclusive)
+     * @param storeID the store to search for
+     * @return the number of transactions and their total
      */
-    @Query(value = "SELECT * FROM transaction WHERE purchase_date BETWEEN :start AND DATE_ADD(:start, INTERVAL 1 day) AND storeID = :storeid", nativeQuery = true)
-    public List<Transaction> generateDayStoreReport(@Param("start") LocalDate start, @Param("storeid") Long storeID);
+    @Query("SELECT COUNT(t) AS transactionCount, COALESCE(SUM(t.totalPrice), 0.0) AS revenue FROM Transaction t " +
+            "WHERE t.purchaseDate >= :start AND t.purchaseDate < :end AND t.store.storeID = :storeID")
+    public SalesSummary summarizeStoreSales(@Param("start") LocalDate start, @Param("end") LocalDate end, @Param("storeID") Long storeID);
 
     /**
-     * Get all transaction made in a given month at a specific store
-     * @param start the first day of the month the report should be made for
-     * @param storeID the store the purchases were made
-     * @return a list of all transactions that took place at the store during the month
+     * Count and total the transactions made company-wide in a time frame, computed by the database
+     * @param start the first day of the time frame (inclusive)
+     * @param end the first day after the time frame (exclusive)
+     * @return the number of transactions and their total
      */
-    @Query(value = "SELECT * FROM transaction WHERE purchase_date BETWEEN :start AND DATE_ADD(:start, INTERVAL 1 month) AND storeID = :storeid", nativeQuery = true)
-    public List<Transaction> generateMonthStoreReport(@Param("start") LocalDate start, @Param("storeid") Long storeID);
+    @Query("SELECT COUNT(t) AS transactionCount, COALESCE(SUM(t.totalPrice), 0.0) AS revenue FROM Transaction t " +
+            "WHERE t.purchaseDate >= :start AND t.purchaseDate < :end")
+    public SalesSummary summarizeSales(@Param("start") LocalDate start, @Param("end") LocalDate end);
 
     /**
-     * Get all transaction made during a given year at a specific store
-     * @param start the first day of the year the report should be made for
-     * @param storeID the store the purchases were made
-     * @return a list of all transactions that took place at the store during the year
+     * Count and total the transactions made at a store for each day in a time frame
+     * @param start the first day of the time frame (inclusive)
+     * @param end the first day after the time frame (exclusive)
+     * @param storeID the store to search for
+     * @return one row per day that had sales, in date order. Must be closed and read inside a transaction
      */
-    @Query(value = "SELECT * FROM transaction WHERE purchase_date BETWEEN :start AND DATE_ADD(:start, INTERVAL 1 year) AND storeID = :storeid", nativeQuery = true)
-    public List<Transaction> generateYearStoreReport(@Param("start") LocalDate start, @Param("storeid") Long storeID);
-
+    @Query("SELECT t.store.storeID AS storeID, t.purchaseDate AS purchaseDate, COUNT(t) AS transactionCount, " +
+            "SUM(t.totalPrice) AS revenue FROM Transaction t " +
+            "WHERE t.purchaseDate >= :start AND t.purchaseDate < :end AND t.store.storeID = :storeID " +
+            "GROUP BY t.store.storeID, t.purchaseDate ORDER BY t.purchaseDate")
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE), @QueryHint(name = HINT_READ_ONLY, value = "true")})
+    public Stream<DailySales> summarizeStoreSalesByDay(@Param("start") LocalDate start, @Param("end") LocalDate end, @Param("storeID") Long storeID);
 
     /**
-     * Get all transaction made on a given day company-wide
-     * @param start the day the report should be made for
-     * @return a list of all transactions that took place on the given day
+     * Count and total the transactions made at each store for each day in a time frame
+     * @param start the first day of the time frame (inclusive)
+     * @param end the first day after the time frame (exclusive)
+     * @return one row per store and day that had sales, in date order. Must be closed and read inside a transaction
      */
-    @Query(value = "SELECT * FROM transaction WHERE purchase_date BETWEEN :start AND DATE_ADD(:start, INTERVAL 1 day)", nativeQuery = true)
-    public List<Transaction> generateDayReport(@Param("start") LocalDate start);
+    @Query("SELECT t.store.storeID AS storeID, t.purchaseDate AS purchaseDate, COUNT(t) AS transactionCount, " +
+            "SUM(t.totalPrice) AS revenue FROM Transaction t " +
+            "WHERE t.purchaseDate >= :start AND t.purchaseDate < :end " +
+            "GROUP BY t.store.storeID, t.purchaseDate ORDER BY t.purchaseDate, t.store.storeID")
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE), @QueryHint(name = HINT_READ_ONLY, value = "true")})
+    public Stream<DailySales> summarizeSalesByStoreAndDay(@Param("start") LocalDate start, @Param("end") LocalDate end);
 
     /**
-     * Get all transaction made during a given month company-wide
-     * @param start the day the report should be made for
-     * @return a list of all transactions that took place during the month
+     * List the ID, store and total of each transaction made at a store in a time frame without loading the transactions
+     * @param start the first day of the time frame (inclusive)
+     * @param end the first day after the time frame (exclusive)
+     * @param storeID the store to search for
+     * @return one row per transaction, in ID order. Must be closed and read inside a transaction
      */
-    @Query(value = "SELECT * FROM transaction WHERE purchase_date BETWEEN :start AND DATE_ADD(:start, INTERVAL 1 month)", nativeQuery = true)
-    public List<Transaction> generateMonthReport(@Param("start") LocalDate start);
+    @Query("SELECT t.transactionID AS transactionID, t.store.storeID AS storeID, t.totalPrice AS totalPrice " +
+            "FROM Transaction t WHERE t.purchaseDate >= :start AND t.purchaseDate < :end AND t.store.storeID = :storeID " +
+            "ORDER BY t.transactionID")
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE), @QueryHint(name = HINT_READ_ONLY, value = "true")})
+    public Stream<SalesLine> listStoreSales(@Param("start") LocalDate start, @Param("end") LocalDate end, @Param("storeID") Long storeID);
 
     /**
-     * Get all transaction made during a given year company-wide
-     * @param start the day the report should be made for
-     * @return a list of all transactions that took place during the year
+     * List the ID, store and total of each transaction made company-wide in a time frame without loading the transactions
+     * @param start the first day of the time frame (inclusive)
+     * @param end the first day after the time frame (exclusive)
+     * @return one row per transaction, in ID order. Must be closed and read inside a transaction
      */
-    @Query(value = "SELECT * FROM transaction WHERE purchase_date BETWEEN :start AND DATE_ADD(:start, INTERVAL 1 year)", nativeQuery = true)
-    public List<Transaction> generateYearReport(@Param("start") LocalDate start);
+    @Query("SELECT t.transactionID AS transactionID, t.store.storeID AS storeID, t.totalPrice AS totalPrice " +
+            "FROM Transaction t WHERE t.purchaseDate >= :start AND t.purchaseDate < :end ORDER BY t.transactionID")
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE), @QueryHint(name = HINT_READ_ONLY, value = "true")})
+    public Stream<SalesLine> listSales(@Param("start") LocalDate start, @Param("end") LocalDate end);
 
     /**
-     * Get all transactions made at a store in a specified time frame
-     * @param start the first day of the time frame (inclusive)
-     * @param end the last day of the time frame (inclusive)
-     * @param storeID the store to search for
-     * @return a list of all transactions that occurred at the store in the time specified
+     * SalesSummary is the number of transactions and their total over a time frame
      */
-    @Query(value = "SELECT * FROM transaction WHERE purchase_date BETWEEN :start AND :end AND storeid = :storeID", nativeQuery = true)
-    public List<Transaction> generateBoundStoreSalesReport(@Param("start") LocalDate start, @Param("end") LocalDate end, @Param("storeID") Long storeID);
+    public interface SalesSummary {
+
+        /**
+         * Get the number of transactions
+         * @return the number of transactions
+         */
+        Long getTransactionCount();
+
+        /**
+         * Get the total of all transactions
+         * @return the total sales
+         */
+        Double getRevenue();
+    }
 
     /**
-     * Get all transactions made in a specified time frame company-wide
-     * @param start the first day of the time frame (inclusive)
-     * @param end the last day of the time frame (inclusive)
-     * @return a list of all transactions that occurred in the time specified
+     * DailySales is the number of transactions and their total at one store on one day
      */
-    @Query(value = "SELECT * FROM transaction WHERE purchase_date BETWEEN :start AND :end", nativeQuery = true)
-    public List<Transaction> generateBoundSalesReport(@Param("start") LocalDate start, @Param("end") LocalDate end);
+    public interface DailySales extends SalesSummary {
+
+        /**
+         * Get the store the sales were made at
+         * @return the store ID
+         */
+        Long getStoreID();
+
+        /**
+         * Get the day the sales were made
+         * @return the purchase date
+         */
+        LocalDate getPurchaseDate();
+    }
 
+    /**
+     * SalesLine is the part of a transaction shown on a sales report
+     */
+    public interface SalesLine {
+
+        /**
+         * Get the transaction ID
+         * @return the transaction ID
+         */
+        Long getTransactionID();
+
+        /**
+         * Get the store the transaction was made at
+         * @return the store ID
+         */
+        Long getStoreID();
+
+        /**
+         * Get the total price of the transaction
+         * @return the total price
+         */
+        Double getTotalPrice();
+    }
 }
@@ -0,0 +1,545 @@
+package CSC540.WolfWR.services;
+
+import CSC540.WolfWR.models.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Checkout Service runs purchases at the registers without any console input, so any number of registers
+ * can share one instance of the program.
+ *
+ * A purchase opens a cart, adds and removes items, prices the cart, and commits it. Carts are kept in memory
+ * and no database transaction is open while a customer is shopping. Stock is reserved in memory when an item
+ * is added to a cart, so two registers cannot sell the same last unit. Reservations are counted per product with
+ * compare-and-set, so registers never wait on each other. Committing a cart runs completePurchase,
+ * the only database transaction in a purchase, which checks stock again in case another instance sold it.
+ *
+ * Products can be added by SKU, in which case the units are taken from the store's lots that expire first,
+ * spreading over as many lots as needed. Lots are read from the in-memory lot index kept by the Merchandise Service,
+ * so choosing them costs no queries.
+ *
+ * Carts left open longer than wolfwr.checkout.cart-timeout-minutes are cancelled, and their stock released,
+ * the next time a cart is opened.
+ *
+ * @author Brandon Jiang
+ */
+@Component
+public class CheckoutService {
+
+    /** Saves completed purchases and finds cashiers */
+    @Autowired
+    private TransactionService transServ;
+
+    /** Reads how much stock is left and which lots expire first */
+    @Autowired
+    private MerchandiseService merchServ;
+
+    /** Prices items after discounts */
+    @Autowired
+    private DiscountService discountServ;
+
+    /** How long a cart may sit unused before it is cancelled */
+    @Value("${wolfwr.checkout.cart-timeout-minutes:30}")
+    private long cartTimeoutMinutes;
+
+    /** Every open cart, keyed by cart ID */
+    private final Map<Long, Cart> carts = new ConcurrentHashMap<>();
+
+    /** Units held by open carts, keyed by product ID */
+    private final Map<Long, AtomicInteger> reserved = new ConcurrentHashMap<>();
+
+    /** Hands out cart IDs, which only need to be unique while the program runs */
+    private final AtomicLong nextCartID = new AtomicLong();
+
+    /**
+     * Open an empty cart for a member at a store. The first cashier at the store completes the purchase
+     * @param store the store the purchase is made at
+     * @param member the member making the purchase
+     * @param date the date of the purchase
+     * @return the new cart, or null if the store has no cashiers
+     */
+    public Cart openCart(Store store, Member member, LocalDate date) {
+        expireIdleCarts();
+        List<Staff> cashiers = transServ.findCashier(store);
+        if (cashiers.isEmpty()) {
+            return null;
+        }
+        Cart cart = new Cart(nextCartID.incrementAndGet(), store, member, cashiers.get(0), date);
+        carts.put(cart.getCartID(), cart);
+        return cart;
+    }
+
+    /**
+     * Find an open cart
+     * @param cartID the cart to look for
+     * @return the cart, or null if it is not open
+     */
+    public Cart getCart(long cartID) {
+        return carts.get(cartID);
+    }
+
+    /**
+     * Add units of a merchandise entry to a cart, reserving them so no other cart can take them
+     * @param cartID the cart to add to
+     * @param merch the merchandise being purchased
+     * @param quantity the number of units to add
+     * @return true if the units were added, false if there is not enough stock left
+     * @throws IllegalArgumentException if the cart is not open, the quantity is not positive,
+     *                                  or the merchandise is not sold at the cart's store
+     */
+    public boolean addItem(long cartID, Merchandise merch, int quantity) {
+        Cart cart = requireCart(cartID);
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be positive");
+        }
+        if (merch.getStore().getStoreID() != cart.getStore().getStoreID()) {
+            throw new IllegalArgumentException("Product " + merch.getProductID() + " is not sold at this store");
+        }
+        if (!reserve(merch.getProductID(), quantity)) {
+            return false;
+        }
+        addLines(cart, Map.of(merch, quantity));
+        return true;
+    }
+
+    /**
+     * Add units of a product to a cart, taking them from the lots at the cart's store that expire first.
+     * Units come from the next lot once a lot has no unreserved stock left. Lots that expired before the
+     * cart's date are never taken
+     * @param cartID the cart to add to
+     * @param sku the product being purchased
+     * @param quantity the number of units to add
+     * @return true if the units were added, false if the store does not have enough stock left
+     * @throws IllegalArgumentException if the cart is not open or the quantity is not positive
+     */
+    public boolean addProduct(long cartID, long sku, int quantity) {
+        Cart cart = requireCart(cartID);
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be positive");
+        }
+        Map<Merchandise, Integer> taken = new LinkedHashMap<>();
+        int remaining = quantity;
+        for (LotIndex.Lot lot : merchServ.lotsOf(cart.getStore(), sku, cart.getDate())) {
+            int reservedHere = reserveUpTo(lot.getProductID(), lot.getQuantity(), remaining);
+            if (reservedHere > 0) {
+                taken.put(lot.getMerch(), reservedHere);
+                remaining -= reservedHere;
+                if (remaining == 0) {
+                    break;
+                }
+            }
+        }
+        if (remaining > 0) {
+            taken.forEach((merch, units) -> release(merch.getProductID(), units));
+            return false;
+        }
+        addLines(cart, taken);
+        return true;
+    }
+
+    /**
+     * Get the products that can be sold at a store on a day, with the lot each would be sold from first
+     * @param store the store to look in
+     * @param date the day of the sale
+     * @return one lot per product, ordered by product name
+     */
+    public List<LotIndex.Lot> productsAt(Store store, LocalDate date) {
+        return merchServ.productsAt(store, date);
+    }
+
+    /**
+     * Put units that are already reserved into a cart
+     * @param cart the cart to add to
+     * @param units the number of units of each merchandise entry
+     * @throws IllegalArgumentException if the cart was cancelled while the units were being reserved.
+     *                                  The units are released
+     */
+    private void addLines(Cart cart, Map<Merchandise, Integer> units) {
+        synchronized (cart) {
+            if (carts.get(cart.getCartID()) != cart) {
+                // The cart was cancelled while the stock was being reserved
+                units.forEach((merch, quantity) -> release(merch.getProductID(), quantity));
+                throw new IllegalArgumentException("Cart " + cart.getCartID() + " is not open");
+            }
+            units.forEach((merch, quantity) -> cart.lines.merge(merch.getProductID(), new CartLine(merch, quantity),
+                    (old, added) -> new CartLine(merch, old.getQuantity() + added.getQuantity())));
+            cart.touch();
+        }
+    }
+
+    /**
+     * Take units of a merchandise entry out of a cart and release them
+     * @param cartID the cart to remove from
+     * @param productID the merchandise entry to remove
+     * @param quantity the number of units to remove, more than are in the cart removes them all
+     * @throws IllegalArgumentException if the cart is not open
+     */
+    public void removeItem(long cartID, long productID, int quantity) {
+        Cart cart = requireCart(cartID);
+        int removed;
+        synchronized (cart) {
+            if (carts.get(cartID) != cart) {
+                // The cart was committed or cancelled after it was found
+                throw new IllegalArgumentException("Cart " + cartID + " is not open");
+            }
+            CartLine line = cart.lines.get(productID);
+            if (line == null || quantity <= 0) {
+                return;
+            }
+            removed = Math.min(quantity, line.getQuantity());
+            if (removed == line.getQuantity()) {
+                cart.lines.remove(productID);
+            } else {
+                cart.lines.put(productID, new CartLine(line.getMerch(), line.getQuantity() - removed));
+            }
+            cart.touch();
+        }
+        release(productID, removed);
+    }
+
+    /**
+     * Find the total price of a cart after discounts on the day of the purchase
+     * @param cartID the cart to price
+     * @return the total price
+     * @throws IllegalArgumentException if the cart is not open
+     */
+    public double price(long cartID) {
+        Cart cart = requireCart(cartID);
+        return price(cart.getLines(), cart.getDate());
+    }
+
+    /**
+     * Complete the purchase of everything in a cart in one short database transaction, then close the cart.
+     * The cart is taken out of the open carts before the purchase is saved, so a second commit of the same cart
+     * fails instead of buying it twice, and items can no longer be added to it
+     * @param cartID the cart to commit
+     * @return the saved transaction
+     * @throws IllegalArgumentException if the cart is not open, or is already being committed
+     * @throws IllegalStateException if the cart is empty, or an item sold out at another instance of the program.
+     *                               The cart is left open so items can be removed and the purchase tried again
+     */
+    public Transaction commit(long cartID) {
+        Cart cart = requireCart(cartID);
+        List<CartLine> lines;
+        synchronized (cart) {
+            if (!carts.remove(cartID, cart)) {
+                throw new IllegalArgumentException("Cart " + cartID + " is not open");
+            }
+            lines = cart.getLines();
+            if (lines.isEmpty()) {
+                carts.put(cartID, cart);
+                throw new IllegalStateException("Cart is empty");
+            }
+        }
+
+        Transaction t = new Transaction();
+        try {
+            t.setTransactionID(transServ.generateID());
+            t.setStore(cart.getStore());
+            t.setMember(cart.getMember());
+            t.setCashierID(cart.getCashier());
+            t.setPurchaseDate(cart.getDate());
+            t.setProductList(new ArrayList<>());
+            for (CartLine line : lines) {
+                t.addMerchandise(line.getMerch(), line.getQuantity());
+            }
+            t.setTotalPrice(price(lines, cart.getDate()));
+            transServ.completePurchase(t);
+        } catch (RuntimeException e) {
+            // Nothing was bought, so the cart goes back with its stock still reserved
+            cart.touch();
+            carts.put(cartID, cart);
+            throw e;
+        }
+        for (CartLine line : lines) {
+            release(line.getProductID(), line.getQuantity());
+        }
+        return t;
+    }
+
+    /**
+     * Empty a cart without buying anything and release its stock
+     * @param cartID the cart to cancel, nothing happens if it is not open
+     */
+    public void cancel(long cartID) {
+        Cart cart = carts.get(cartID);
+        if (cart != null) {
+            close(cart);
+        }
+    }
+
+    /**
+     * Get the number of units of a product held by open carts
+     * @param productID the product to look for
+     * @return the number of units reserved
+     */
+    public int reservedQuantity(long productID) {
+        AtomicInteger held = reserved.get(productID);
+        return held == null ? 0 : held.get();
+    }
+
+    /**
+     * Cancel every cart that has not been used within the timeout
+     */
+    public void expireIdleCarts() {
+        long cutoff = System.currentTimeMillis() - cartTimeoutMinutes * 60_000;
+        for (Cart cart : carts.values()) {
+            if (cart.lastUsed < cutoff) {
+                close(cart);
+            }
+        }
+    }
+
+    /**
+     * Remove a cart and release everything in it. Only the caller that removes the cart releases its stock,
+     * and the cart is locked while it is removed so nothing can be added to it afterwards
+     * @param cart the cart to close
+     */
+    private void close(Cart cart) {
+        List<CartLine> lines;
+        synchronized (cart) {
+            if (!carts.remove(cart.getCartID(), cart)) {
+                return;
+            }
+            lines = cart.getLines();
+        }
+        for (CartLine line : lines) {
+            release(line.getProductID(), line.getQuantity());
+        }
+    }
+
+    /**
+     * Reserve units of a product if enough stock is left after what other carts hold
+     * @param productID the product to reserve
+     * @param quantity the number of units to reserve
+     * @return true if the units were reserved
+     */
+    private boolean reserve(long productID, int quantity) {
+        int stock = merchServ.stockOf(productID);
+        AtomicInteger held = reserved.computeIfAbsent(productID, id -> new AtomicInteger());
+        while (true) {
+            int current = held.get();
+            if (current + quantity > stock) {
+                return false;
+            }
+            if (held.compareAndSet(current, current + quantity)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Reserve as many units of a product as are left after what other carts hold, up to the number wanted
+     * @param productID the product to reserve
+     * @param stock the number of units in stock
+     * @param wanted the most units to reserve
+     * @return the number of units reserved, 0 if none are left
+     */
+    private int reserveUpTo(long productID, int stock, int wanted) {
+        AtomicInteger held = reserved.computeIfAbsent(productID, id -> new AtomicInteger());
+        while (true) {
+            int current = held.get();
+            int units = Math.min(wanted, stock - current);
+            if (units <= 0) {
+                return 0;
+            }
+            if (held.compareAndSet(current, current + units)) {
+                return units;
+            }
+        }
+    }
+
+    /**
+     * Give back units reserved by a cart
+     * @param productID the product to release
+     * @param quantity the number of units to release
+     */
+    private void release(long productID, int quantity) {
+        AtomicInteger held = reserved.get(productID);
+        if (held != null) {
+            held.addAndGet(-quantity);
+        }
+    }
+
+    /**
+     * Add up the price of items after discounts
+     * @param lines the items being purchased
+     * @param date the date of the purchase
+     * @return the total price
+     */
+    private double price(List<CartLine> lines, LocalDate date) {
+        double total = 0;
+        for (CartLine line : lines) {
+            total += discountServ.priceOn(line.getProductID(), line.getMerch().getMarketPrice(), date) * line.getQuantity();
+        }
+        return total;
+    }
+
+    /**
+     * Find an open cart, failing if it is not open
+     * @param cartID the cart to look for
+     * @return the cart
+     * @throws IllegalArgumentException if the cart is not open
+     */
+    private Cart requireCart(long cartID) {
+        Cart cart = carts.get(cartID);
+        if (cart == null) {
+            throw new IllegalArgumentException("Cart " + cartID + " is not open");
+        }
+        return cart;
+    }
+
+    /**
+     * Cart holds the items a member is buying until the purchase is committed or cancelled.
+     * Carts are changed only through the Checkout Service
+     */
+    public static class Cart {
+
+        /** Identifier for the cart while it is open */
+        private final long cartID;
+
+        /** The store the purchase is made at */
+        private final Store store;
+
+        /** The member making the purchase */
+        private final Member member;
+
+        /** The cashier completing the purchase */
+        private final Staff cashier;
+
+        /** The date of the purchase */
+        private final LocalDate date;
+
+        /** Items in the cart in the order they were added, keyed by product ID */
+        private final Map<Long, CartLine> lines = new LinkedHashMap<>();
+
+        /** When the cart was last changed, in milliseconds */
+        private volatile long lastUsed = System.currentTimeMillis();
+
+        /**
+         * Constructor for an empty cart
+         * @param cartID identifier for the cart
+         * @param store the store the purchase is made at
+         * @param member the member making the purchase
+         * @param cashier the cashier completing the purchase
+         * @param date the date of the purchase
+         */
+        private Cart(long cartID, Store store, Member member, Staff cashier, LocalDate date) {
+            this.cartID = cartID;
+            this.store = store;
+            this.member = member;
+            this.cashier = cashier;
+            this.date = date;
+        }
+
+        /** Record that the cart was just used */
+        private void touch() {
+            lastUsed = System.currentTimeMillis();
+        }
+
+        /**
+         * Get the cart ID
+         * @return the identifier for the cart while it is open
+         */
+        public long getCartID() {
+            return cartID;
+        }
+
+        /**
+         * Get the store the purchase is made at
+         * @return the store
+         */
+        public Store getStore() {
+            return store;
+        }
+
+        /**
+         * Get the member making the purchase
+         * @return the member
+         */
+        public Member getMember() {
+            return member;
+        }
+
+        /**
+         * Get the cashier completing the purchase
+         * @return the cashier
+         */
+        public Staff getCashier() {
+            return cashier;
+        }
+
+        /**
+         * Get the date of the purchase
+         * @return the purchase date
+         */
+        public LocalDate getDate() {
+            return date;
+        }
+
+        /**
+         * Get a copy of the items in the cart
+         * @return the items in the order they were added
+         */
+        public synchronized List<CartLine> getLines() {
+            return Collections.unmodifiableList(new ArrayList<>(lines.values()));
+        }
+    }
+
+    /**
+     * CartLine is a number of units of one merchandise entry in a cart. Lines are never changed once made
+     */
+    public static class CartLine {
+
+        /** The merchandise being purchased */
+        private final Merchandise merch;
+
+        /** The number of units being purchased */
+        private final int quantity;
+
+        /**
+         * Constructor for a line in a cart
+         * @param merch the merchandise being purchased
+         * @param quantity the number of units being purchased
+         */
+        private CartLine(Merchandise merch, int quantity) {
+            this.merch = merch;
+            this.quantity = quantity;
+        }
+
+        /**
+         * Get the merchandise being purchased
+         * @return the merchandise entry
+         */
+        public Merchandise getMerch() {
+            return merch;
+        }
+
+        /**
+         * Get the product ID of the merchandise being purchased
+         * @return the product ID
+         */
+        public long getProductID() {
+            return merch.getProductID();
+        }
+
+        /**
+         * Get the number of units being purchased
+         * @return the quantity
+         */
+        public int getQuantity() {
+            return quantity;
+        }
+    }
+}
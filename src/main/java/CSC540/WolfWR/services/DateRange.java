@@ -0,0 +1,97 @@
+package CSC540.WolfWR.services;
+
+import java.time.LocalDate;
+
+/**
+ * DateRange is a span of days from a first day (inclusive) up to an end day (exclusive).
+ * Queries compare dates as "start <= date AND date < end", so the database can read the range
+ * straight from an index and back-to-back ranges never count the same day twice.
+ *
+ * @author Brandon Jiang
+ */
+public class DateRange {
+
+    /** The first day in the range */
+    private final LocalDate start;
+
+    /** The first day after the range */
+    private final LocalDate end;
+
+    /**
+     * Create a range of days
+     * @param start the first day in the range
+     * @param end the first day after the range
+     */
+    private DateRange(LocalDate start, LocalDate end) {
+        this.start = start;
+        this.end = end;
+    }
+
+    /**
+     * A single day
+     * @param day the day
+     * @return a range holding only that day
+     */
+    public static DateRange day(LocalDate day) {
+        return new DateRange(day, day.plusDays(1));
+    }
+
+    /**
+     * One month of days starting on a given day
+     * @param start the first day of the month-long range
+     * @return the range from start up to the same day next month
+     */
+    public static DateRange month(LocalDate start) {
+        return new DateRange(start, start.plusMonths(1));
+    }
+
+    /**
+     * One year of days starting on a given day
+     * @param start the first day of the year-long range
+     * @return the range from start up to the same day next year
+     */
+    public static DateRange year(LocalDate start) {
+        return new DateRange(start, start.plusYears(1));
+    }
+
+    /**
+     * Every day from one day through another, as typed in by a user
+     * @param first the first day of the range (inclusive)
+     * @param last the last day of the range (inclusive)
+     * @return the range covering first through last
+     */
+    public static DateRange between(LocalDate first, LocalDate last) {
+        return new DateRange(first, last.plusDays(1));
+    }
+
+    /**
+     * A fixed timeframe starting on a given day
+     * @param timeframe "day", "month", or "year"
+     * @param start the first day of the timeframe
+     * @return the range, or null if the timeframe is not recognized
+     */
+    public static DateRange of(String timeframe, LocalDate start) {
+        return switch (timeframe) {
+            case "day" -> day(start);
+            case "month" -> month(start);
+            case "year" -> year(start);
+            default -> null;
+        };
+    }
+
+    /**
+     * Get the first day in the range
+     * @return the first day (inclusive)
+     */
+    public LocalDate getStart() {
+        return start;
+    }
+
+    /**
+     * Get the first day after the range
+     * @return the end of the range (exclusive)
+     */
+    public LocalDate getEnd() {
+        return end;
+    }
+}
@@ -0,0 +1,63 @@
+package CSC540.WolfWR.services;
+
+import CSC540.WolfWR.models.Delivery;
+import CSC540.WolfWR.models.Merchandise;
+import CSC540.WolfWR.repositories.DeliveryRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+
+/**
+ * Delivery Service records merchandise received from suppliers in the delivery ledger.
+ * Deliveries are only added, so there are no methods to change them.
+ *
+ * @author Brandon Jiang
+ */
+@Transactional
+@Component
+public class DeliveryService extends Services<Delivery, Long> {
+
+    /** Repository connection between the Delivery table and program code */
+    @Autowired
+    private DeliveryRepository repo;
+
+    /** Hands out unique ID numbers */
+    @Autowired
+    private IdService idServ;
+
+    /** Returns the repository connection between the Delivery table and program code */
+    @Override
+    protected JpaRepository<Delivery, Long> getRepo() {
+        return this.repo;
+    }
+
+    /**
+     * Record units received from a merchandise entry's supplier, at the entry's buy price
+     * @param merch the merchandise entry that received the units
+     * @param quantity the number of units received
+     * @param date the day the units were received
+     */
+    public void record(Merchandise merch, int quantity, LocalDate date) {
+        saveDeferred(new Delivery(idServ.nextID("delivery", repo::getMaxID), merch, quantity, date));
+    }
+
+    /**
+     * Record one delivery, dated on its production date, for each merchandise entry in stock that has none.
+     * Entries created by transfers between stores are skipped, since their units were delivered to another store.
+     * The units recorded are the entry's current quantity, so units sold before the backfill are not billed
+     * @return the number of deliveries recorded
+     */
+    public int backfillFromMerchandise() {
+        // Deferred saves have to reach the database before the ledger is computed from it
+        flush();
+        long missing = repo.countMissingFromMerchandise();
+        if (missing == 0) {
+            return 0;
+        }
+        // Entries stocked after the count are left for the next backfill, the range only fits the ones counted
+        return repo.backfillFromMerchandise(idServ.reserveRange("delivery", missing, repo::getMaxID), missing);
+    }
+}
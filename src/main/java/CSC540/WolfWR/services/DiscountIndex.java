@@ -0,0 +1,214 @@
+package CSC540.WolfWR.services;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * DiscountIndex is an in-memory copy of the discount table that answers
+ * "what discount applies to product P on date D" without going to the database.
+ *
+ * Each product keeps its discounts sorted by start date in plain arrays, along with the latest end date
+ * seen so far at each position. A lookup is two binary searches and does not allocate.
+ * Lookups never lock; changes build a new copy of one product's arrays and swap it in.
+ *
+ * If a product has more than one discount active on a date, the one that started first applies,
+ * matching the order the discount queries return them in.
+ *
+ * @author Brandon Jiang
+ */
+public class DiscountIndex {
+
+    /** Returned by percentageOn when no discount is active */
+    public static final int NONE = -1;
+
+    /** Discounts for each product, keyed by product ID */
+    private final Map<Long, Intervals> byProduct = new ConcurrentHashMap<>();
+
+    /**
+     * Add a discount to the index, replacing any discount on the same product with the same start date
+     * @param productID the discounted product
+     * @param start the first day the discount is active (inclusive)
+     * @param end the last day the discount is active (inclusive)
+     * @param percentage the percentage taken off the product
+     */
+    public void put(long productID, LocalDate start, LocalDate end, int percentage) {
+        byProduct.compute(productID, (id, old) ->
+                (old == null ? Intervals.EMPTY : old).with(start.toEpochDay(), end.toEpochDay(), percentage));
+    }
+
+    /**
+     * Remove a discount from the index
+     * @param productID the discounted product
+     * @param start the first day of the discount being removed
+     */
+    public void remove(long productID, LocalDate start) {
+        byProduct.computeIfPresent(productID, (id, old) -> old.without(start.toEpochDay()));
+    }
+
+    /**
+     * Find the discount active on a product on a given date
+     * @param productID the product to look for
+     * @param date the date to look for
+     * @return the discount percentage, or NONE if the product is not discounted on that date
+     */
+    public int percentageOn(long productID, LocalDate date) {
+        Intervals intervals = byProduct.get(productID);
+        return intervals == null ? NONE : intervals.percentageOn(date.toEpochDay());
+    }
+
+    /**
+     * Intervals holds the discounts of a single product, sorted by start date.
+     * Instances are never changed once built.
+     */
+    private static class Intervals {
+
+        /** A product with no discounts */
+        private static final Intervals EMPTY = new Intervals(new long[0], new long[0], new int[0]);
+
+        /** First day of each discount as an epoch day, ascending */
+        private final long[] starts;
+
+        /** Last day of each discount as an epoch day */
+        private final long[] ends;
+
+        /** The latest end date among the discounts at or before each position */
+        private final long[] maxEnds;
+
+        /** The percentage of each discount */
+        private final int[] percentages;
+
+        /**
+         * Build the intervals from arrays already sorted by start date
+         * @param starts first day of each discount
+         * @param ends last day of each discount
+         * @param percentages percentage of each discount
+         */
+        private Intervals(long[] starts, long[] ends, int[] percentages) {
+            this.starts = starts;
+            this.ends = ends;
+            this.percentages = percentages;
+            this.maxEnds = new long[ends.length];
+            for (int i = 0; i < ends.length; i++) {
+                maxEnds[i] = i == 0 ? ends[i] : Math.max(maxEnds[i - 1], ends[i]);
+            }
+        }
+
+        /**
+         * Find the percentage of the earliest-starting discount that covers the day
+         * @param day the date as an epoch day
+         * @return the discount percentage, or NONE
+         */
+        private int percentageOn(long day) {
+            // Last discount that has started by this day
+            int last = upperBound(starts, day) - 1;
+            if (last < 0) {
+                return NONE;
+            }
+            // First discount whose running max end reaches this day is the first one still active
+            int first = lowerBound(maxEnds, day);
+            return first <= last ? percentages[first] : NONE;
+        }
+
+        /**
+         * Copy the intervals with a discount added or replaced
+         * @param start first day of the discount
+         * @param end last day of the discount
+         * @param percentage percentage of the discount
+         * @return the new intervals
+         */
+        private Intervals with(long start, long end, int percentage) {
+            int idx = Arrays.binarySearch(starts, start);
+            if (idx >= 0) {
+                long[] e = ends.clone();
+                int[] p = percentages.clone();
+                e[idx] = end;
+                p[idx] = percentage;
+                return new Intervals(starts, e, p);
+            }
+            int at = -idx - 1;
+            return new Intervals(insert(starts, at, start), insert(ends, at, end), insert(percentages, at, percentage));
+        }
+
+        /**
+         * Copy the intervals with a discount removed
+         * @param start first day of the discount to remove
+         * @return the new intervals, or null if no discounts are left
+         */
+        private Intervals without(long start) {
+            int idx = Arrays.binarySearch(starts, start);
+            if (idx < 0) {
+                return this;
+            }
+            if (starts.length == 1) {
+                return null;
+            }
+            return new Intervals(delete(starts, idx), delete(ends, idx), delete(percentages, idx));
+        }
+
+        /** Index of the first value greater than the key */
+        private static int upperBound(long[] values, long key) {
+            int lo = 0;
+            int hi = values.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (values[mid] <= key) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+
+        /** Index of the first value greater than or equal to the key */
+        private static int lowerBound(long[] values, long key) {
+            int lo = 0;
+            int hi = values.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (values[mid] < key) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+
+        /** Copy of the array with a value inserted at the position */
+        private static long[] insert(long[] values, int at, long value) {
+            long[] copy = new long[values.length + 1];
+            System.arraycopy(values, 0, copy, 0, at);
+            copy[at] = value;
+            System.arraycopy(values, at, copy, at + 1, values.length - at);
+            return copy;
+        }
+
+        /** Copy of the array with a value inserted at the position */
+        private static int[] insert(int[] values, int at, int value) {
+            int[] copy = new int[values.length + 1];
+            System.arraycopy(values, 0, copy, 0, at);
+            copy[at] = value;
+            System.arraycopy(values, at, copy, at + 1, values.length - at);
+            return copy;
+        }
+
+        /** Copy of the array with the value at the position removed */
+        private static long[] delete(long[] values, int at) {
+            long[] copy = new long[values.length - 1];
+            System.arraycopy(values, 0, copy, 0, at);
+            System.arraycopy(values, at + 1, copy, at, values.length - at - 1);
+            return copy;
+        }
+
+        /** Copy of the array with the value at the position removed */
+        private static int[] delete(int[] values, int at) {
+            int[] copy = new int[values.length - 1];
+            System.arraycopy(values, 0, copy, 0, at);
+            System.arraycopy(values, at + 1, copy, at, values.length - at - 1);
+            return copy;
+        }
+    }
+}
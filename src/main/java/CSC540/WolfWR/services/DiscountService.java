@@ -2,20 +2,29 @@ package CSC540.WolfWR.services;
 
 import CSC540.WolfWR.models.Discount;
 import CSC540.WolfWR.models.Merchandise;
+import CSC540.WolfWR.models.TransactionItem;
 import CSC540.WolfWR.repositories.DiscountRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * DiscountService has methods for sharing the database connection with the Discount table
  * and for searching for discounts. Any other methods that interacts with the Discount table
  * should go here.
  *
+ * Pricing lookups are answered from an in-memory DiscountIndex. The index is loaded the first time it is used,
+ * updated whenever discounts are saved or deleted through this service, and reloaded periodically
+ * to pick up changes made by other instances of the program. A reload builds a new index and swaps it in,
+ * so lookups made during a reload still see every discount.
+ *
  * @author Brandon Jiang
  */
 @Component
@@ -26,30 +35,142 @@ public class DiscountService extends Services<Discount, Discount.DiscountID>{
     @Autowired
     private DiscountRepository repo;
 
+    /** In-memory copy of the discount table used for pricing */
+    private volatile DiscountIndex index = new DiscountIndex();
+
+    /** How long the index is used before it is reloaded from the database, in seconds */
+    @Value("${wolfwr.discount.index.refresh-seconds:300}")
+    private long refreshSeconds;
+
+    /** When the index was last loaded from the database, in milliseconds. 0 if it has never been loaded */
+    private volatile long loadedAt = 0;
+
     /** Returns the repository connection between the Discount table and program code */
     @Override
     protected JpaRepository<Discount, Discount.DiscountID> getRepo() {
         return this.repo;
     }
 
-    /**
-     * Find all discounts on all merchandise that are active on the date given
-     * @param date the date to search for
-     * @return list of all discounts that are active on that date
-     */
-    public List<Discount> findByDate(LocalDate date) {
-        return repo.findAllByDate(date);
+    /** Save the discount to the database and to the index once the save commits */
+    @Override
+    public void save(Discount d) {
+        super.save(d);
+        afterCommit(() -> index(d));
+    }
+
+    /** Save the discount with the next batch of writes, and to the index once the save commits */
+    @Override
+    public void saveDeferred(Discount d) {
+        super.saveDeferred(d);
+        afterCommit(() -> index(d));
+    }
+
+    /** Delete the discount from the database and from the index once the delete commits */
+    @Override
+    public void delete(Discount d) {
+        super.delete(d);
+        afterCommit(() -> unindex(List.of(d)));
+    }
+
+    /** Delete each discount from the database and from the index once the delete commits */
+    @Override
+    public void deleteList(List<Discount> discounts) {
+        super.deleteList(discounts);
+        afterCommit(() -> unindex(discounts));
     }
 
     /**
-     * Find all discounts on a specific product that are active on the given date
+     * Find the percentage taken off a product on the given date, using the in-memory index
      * @param m the product to look for
      * @param date the date to look for
-     * @return list of all discounts for that product on the date
+     * @return the discount percentage, or 0 if the product is not on sale that day
+     */
+    public int percentageOn(Merchandise m, LocalDate date) {
+        int percent = currentIndex().percentageOn(m.getProductID(), date);
+        return percent == DiscountIndex.NONE ? 0 : percent;
+    }
+
+    /**
+     * Find the price of every product in a cart after discounts, using the in-memory index
+     * @param cart the items being purchased
+     * @param date the date of the purchase
+     * @return the price of one unit of each product in the cart, keyed by product ID
+     */
+    public Map<Long, Double> resolvePrices(List<TransactionItem> cart, LocalDate date) {
+        DiscountIndex idx = currentIndex();
+        Map<Long, Double> prices = new HashMap<>();
+        for (TransactionItem item : cart) {
+            prices.put(item.getProductID(), discounted(idx, item.getProductID(), item.getMerch().getMarketPrice(), date));
+        }
+        return prices;
+    }
+
+    /**
+     * Find the price of one unit of a product after discounts, using the in-memory index
+     * @param productID the product being purchased
+     * @param marketPrice the price of one unit before discounts
+     * @param date the date of the purchase
+     * @return the price of one unit
      */
-    public List<Discount> findByProductIDAndDate(Merchandise m, LocalDate date) {
-        return repo.findByProductIDAndDate(m.getProductID(), date);
+    public double priceOn(long productID, double marketPrice, LocalDate date) {
+        return discounted(currentIndex(), productID, marketPrice, date);
     }
 
+    /**
+     * Take the discount active on a date off a price
+     * @param idx the index to look for discounts in
+     * @param productID the product being purchased
+     * @param marketPrice the price of one unit before discounts
+     * @param date the date of the purchase
+     * @return the price of one unit
+     */
+    private static double discounted(DiscountIndex idx, long productID, double marketPrice, LocalDate date) {
+        int percent = idx.percentageOn(productID, date);
+        return percent == DiscountIndex.NONE ? marketPrice : marketPrice * (100 - percent) / 100;
+    }
 
+    /**
+     * Reload the index from the discount table
+     */
+    public synchronized void reloadIndex() {
+        DiscountIndex loaded = new DiscountIndex();
+        for (DiscountRepository.DiscountInterval d : repo.findAllIntervals()) {
+            loaded.put(d.getProductID(), d.getStartDate(), d.getEndDate(), d.getDiscountPercentage());
+        }
+        index = loaded;
+        loadedAt = System.currentTimeMillis();
+    }
+
+    /**
+     * Get the index, loading it first if it has never been loaded or is due for a refresh
+     * @return the discount index
+     */
+    private DiscountIndex currentIndex() {
+        if (System.currentTimeMillis() - loadedAt > refreshSeconds * 1000) {
+            synchronized (this) {
+                if (System.currentTimeMillis() - loadedAt > refreshSeconds * 1000) {
+                    reloadIndex();
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Add a discount to the index. Waits for a reload in progress, so the change is made to the new index
+     * @param d the discount to add
+     */
+    private synchronized void index(Discount d) {
+        index.put(d.getProductID().getProductID(), d.getStart(), d.getEnd(), d.getDiscountPercentage());
+    }
+
+    /**
+     * Remove discounts from the index. Waits for a reload in progress, so the change is made to the new index
+     * @param discounts the discounts to remove
+     */
+    private synchronized void unindex(List<Discount> discounts) {
+        for (Discount d : discounts) {
+            index.remove(d.getProductID().getProductID(), d.getStart());
+        }
+    }
 }
@@ -0,0 +1,246 @@
+package CSC540.WolfWR.services;
+
+import CSC540.WolfWR.models.Discount;
+import CSC540.WolfWR.models.Merchandise;
+import CSC540.WolfWR.repositories.MerchandiseRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Expiry Sweep Service finds the merchandise in stock that expires soon, for every store, and can mark it down.
+ * Merchandise that expired within the last wolfwr.expiry.days-back days but is still in stock is found too and
+ * listed separately, so it can be pulled from the shelves. Each expired entry is reported by every sweep in that
+ * window, so a nightly sweep keeps reporting it for that many days.
+ *
+ * The sweep reads merchandise expiring from wolfwr.expiry.days-back days before the sweep through
+ * wolfwr.expiry.days-ahead days after it, in expiration date order, one range of the expiration date index at a time.
+ * Rows outside that window are never read, however long the history of sold out merchandise grows.
+ * Each chunk of wolfwr.expiry.chunk-size entries is read and marked down in its own transaction.
+ *
+ * If wolfwr.expiry.markdown-percent is above 0, each entry expiring soon gets a discount of that percentage from the
+ * day of the sweep until it expires, unless it is already discounted at least that much. Expired entries are never
+ * marked down. Discounts are saved through the Discount Service so prices at the registers change right away.
+ *
+ * The sweep runs on its own on the wolfwr.expiry.sweep.cron schedule, and can also be run from the Global view.
+ *
+ * @author Brandon Jiang
+ */
+@Component
+public class ExpirySweepService {
+
+    /** Reports scheduled sweeps, which run while the console is waiting for input */
+    private static final Logger log = LoggerFactory.getLogger(ExpirySweepService.class);
+
+    /** Repository connection between the Merchandise table and program code */
+    @Autowired
+    private MerchandiseRepository merchRepo;
+
+    /** Saves markdowns and checks for existing discounts */
+    @Autowired
+    private DiscountService discountServ;
+
+    /** Runs each chunk in its own transaction */
+    private final TransactionTemplate chunkTx;
+
+    /** How many days ahead of the sweep merchandise counts as expiring soon */
+    @Value("${wolfwr.expiry.days-ahead:3}")
+    private int daysAhead;
+
+    /** How many days before the sweep expired merchandise still in stock is looked for */
+    @Value("${wolfwr.expiry.days-back:30}")
+    private int daysBack;
+
+    /** Number of merchandise entries read and marked down together */
+    @Value("${wolfwr.expiry.chunk-size:500}")
+    private int chunkSize;
+
+    /** Percentage taken off merchandise expiring soon, 0 to only list it */
+    @Value("${wolfwr.expiry.markdown-percent:0}")
+    private int markdownPercent;
+
+    /**
+     * Constructor that sets up the transaction used for each chunk
+     * @param txManager the transaction manager for the database
+     */
+    public ExpirySweepService(PlatformTransactionManager txManager) {
+        this.chunkTx = new TransactionTemplate(txManager);
+        this.chunkTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Sweep on the configured schedule, nightly by default, and log what was found
+     */
+    @Scheduled(cron = "${wolfwr.expiry.sweep.cron:0 0 2 * * *}")
+    public void scheduledSweep() {
+        SweepResult result = sweep(LocalDate.now(), markdownPercent);
+        result.getExpired().forEach((storeID, merch) ->
+                log.warn("Store {}: {} expired merchandise entries are still in stock", storeID, merch.size()));
+        result.getExpiring().forEach((storeID, merch) ->
+                log.info("Store {}: {} merchandise entries expire by {}", storeID, merch.size(), result.getUpTo()));
+        log.info("Expiry sweep found {} expiring and {} expired entries and created {} markdowns",
+                result.getFound(), result.getExpiredFound(), result.getMarkdowns());
+    }
+
+    /**
+     * Sweep with the configured markdown percentage
+     * @param today the day of the sweep
+     * @return what the sweep found and did
+     */
+    public SweepResult sweep(LocalDate today) {
+        return sweep(today, markdownPercent);
+    }
+
+    /**
+     * Find the merchandise in stock expiring from today through the configured number of days ahead,
+     * and mark it down if a percentage is given. Merchandise in stock that expired within the configured number
+     * of days back is found as well
+     * @param today the day of the sweep
+     * @param percent the percentage to take off, 0 to only list the merchandise
+     * @return the merchandise found at each store and the number of markdowns created
+     */
+    public SweepResult sweep(LocalDate today, int percent) {
+        SweepResult result = new SweepResult(today.plusDays(daysAhead));
+        LocalDate afterDate = today.minusDays(daysBack);
+        long afterID = 0;
+        while (true) {
+            LocalDate chunkAfterDate = afterDate;
+            long chunkAfterID = afterID;
+            List<Merchandise> chunk = chunkTx.execute(status -> {
+                List<Merchandise> found = merchRepo.expiringPage(result.getUpTo(), chunkAfterDate, chunkAfterID,
+                        Limit.of(chunkSize));
+                if (percent > 0) {
+                    result.markdowns += markDown(found, today, percent);
+                }
+                return found;
+            });
+            for (Merchandise m : chunk) {
+                if (m.getExpirationDate().isBefore(today)) {
+                    result.expired.computeIfAbsent(m.getStore().getStoreID(), id -> new ArrayList<>()).add(m);
+                    result.expiredFound++;
+                } else {
+                    result.expiring.computeIfAbsent(m.getStore().getStoreID(), id -> new ArrayList<>()).add(m);
+                    result.found++;
+                }
+            }
+            if (chunk.size() < chunkSize) {
+                return result;
+            }
+            Merchandise last = chunk.get(chunk.size() - 1);
+            afterDate = last.getExpirationDate();
+            afterID = last.getProductID();
+        }
+    }
+
+    /**
+     * Discount each merchandise entry from today until it expires, skipping entries already discounted as much
+     * and entries that have already expired
+     * @param merch the merchandise to mark down
+     * @param today the first day of the markdown
+     * @param percent the percentage to take off
+     * @return the number of markdowns saved
+     */
+    private int markDown(List<Merchandise> merch, LocalDate today, int percent) {
+        List<Discount> markdowns = new ArrayList<>();
+        for (Merchandise m : merch) {
+            if (!m.getExpirationDate().isBefore(today) && discountServ.percentageOn(m, today) < percent) {
+                markdowns.add(new Discount(m, percent, today, m.getExpirationDate()));
+            }
+        }
+        discountServ.saveAll(markdowns);
+        return markdowns.size();
+    }
+
+    /**
+     * SweepResult is what one sweep found and did
+     */
+    public static class SweepResult {
+
+        /** The last expiration date the sweep looked for */
+        private final LocalDate upTo;
+
+        /** Merchandise expiring soon in expiration date order, keyed by store ID */
+        private final Map<Long, List<Merchandise>> expiring = new TreeMap<>();
+
+        /** Merchandise in stock that expired within the days looked back, in expiration date order, keyed by store ID */
+        private final Map<Long, List<Merchandise>> expired = new TreeMap<>();
+
+        /** Number of merchandise entries expiring soon found */
+        private int found;
+
+        /** Number of expired merchandise entries found */
+        private int expiredFound;
+
+        /** Number of markdowns created */
+        private int markdowns;
+
+        /**
+         * Constructor for an empty result
+         * @param upTo the last expiration date the sweep looks for
+         */
+        private SweepResult(LocalDate upTo) {
+            this.upTo = upTo;
+        }
+
+        /**
+         * Get the last expiration date the sweep looked for
+         * @return the last expiration date
+         */
+        public LocalDate getUpTo() {
+            return upTo;
+        }
+
+        /**
+         * Get the merchandise expiring soon at each store
+         * @return the merchandise in expiration date order, keyed by store ID
+         */
+        public Map<Long, List<Merchandise>> getExpiring() {
+            return expiring;
+        }
+
+        /**
+         * Get the merchandise in stock that expired before the sweep at each store, to be pulled from the shelves
+         * @return the merchandise in expiration date order, keyed by store ID
+         */
+        public Map<Long, List<Merchandise>> getExpired() {
+            return expired;
+        }
+
+        /**
+         * Get the number of merchandise entries expiring soon found
+         * @return the number of entries expiring soon
+         */
+        public int getFound() {
+            return found;
+        }
+
+        /**
+         * Get the number of expired merchandise entries found
+         * @return the number of expired entries
+         */
+        public int getExpiredFound() {
+            return expiredFound;
+        }
+
+        /**
+         * Get the number of markdowns created
+         * @return the number of markdowns
+         */
+        public int getMarkdowns() {
+            return markdowns;
+        }
+    }
+}
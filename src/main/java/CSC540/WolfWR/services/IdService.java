@@ -0,0 +1,193 @@
+package CSC540.WolfWR.services;
+
+import CSC540.WolfWR.repositories.IdSequenceRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * ID Service hands out unique ID numbers for new entities.
+ *
+ * IDs are reserved from the id_sequence table in blocks. Each block is handed out from memory,
+ * so most calls never touch the database. Reserving a block happens in its own short transaction
+ * that locks the sequence row, so several instances of the program pointed at the same database
+ * never receive overlapping blocks. Statements that insert many rows at once reserve a range of the
+ * exact size they need the same way.
+ *
+ * @author Brandon Jiang
+ */
+@Component
+public class IdService {
+
+    /** Repository connection between the id_sequence table and program code */
+    @Autowired
+    private IdSequenceRepository repo;
+
+    /** Reads the highest ID of a table on the connection of the current transaction */
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    /** Runs block reservations in their own transaction so the sequence row is released right away */
+    private final TransactionTemplate reservation;
+
+    /** How many IDs are reserved from the database at a time */
+    @Value("${wolfwr.id.block-size:50}")
+    private long blockSize;
+
+    /** The block currently being handed out for each sequence */
+    private final Map<String, Sequence> sequences = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor that sets up the transaction used to reserve blocks
+     * @param txManager the transaction manager for the database
+     */
+    public IdService(PlatformTransactionManager txManager) {
+        this.reservation = new TransactionTemplate(txManager);
+        this.reservation.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Get the next unique ID for a sequence.
+     * If the sequence does not exist yet, it is started one past the highest ID already in the table.
+     * @param sequence the name of the sequence (usually the table the ID is for)
+     * @param currentMax returns the highest ID currently in the table, only called the first time a sequence is used
+     * @return a new ID that has not been handed out before
+     */
+    public long nextID(String sequence, LongSupplier currentMax) {
+        Sequence seq = sequences.computeIfAbsent(sequence, Sequence::new);
+        while (true) {
+            Block block = seq.current;
+            if (block != null) {
+                long id = block.next.getAndIncrement();
+                if (id < block.limit) {
+                    return id;
+                }
+            }
+            // Block is used up, only one thread reserves the replacement
+            synchronized (seq) {
+                if (seq.current == block) {
+                    seq.current = reserveBlock(sequence, currentMax);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reserve a range of IDs for rows inserted together by one statement, separate from the block
+     * handed out by nextID.
+     * If the sequence does not exist yet, it is started one past the highest ID already in the table.
+     * @param sequence the name of the sequence
+     * @param count the number of IDs needed
+     * @param currentMax returns the highest ID currently in the table, only called the first time a sequence is used
+     * @return the first ID of the range, the range runs up to but not including this plus count
+     */
+    public long reserveRange(String sequence, long count, LongSupplier currentMax) {
+        if (count <= 0) {
+            throw new IllegalArgumentException("Count must be positive");
+        }
+        return reserve(sequence, count, currentMax) - count;
+    }
+
+    /**
+     * Make sure a sequence never hands out an ID at or below the given value.
+     * Used after rows are inserted with their own IDs, such as during a bulk load.
+     * Any IDs left in the block currently held in memory are dropped, since the new rows may have taken them
+     * @param sequence the name of the sequence
+     * @param max the highest ID now in the table
+     */
+    public void advancePast(String sequence, long max) {
+        Sequence seq = sequences.computeIfAbsent(sequence, Sequence::new);
+        synchronized (seq) {
+            reservation.executeWithoutResult(status -> {
+                repo.createIfAbsent(sequence, max + 1);
+                repo.raiseTo(sequence, max + 1);
+            });
+            seq.current = null;
+        }
+    }
+
+    /**
+     * Make sure a sequence never hands out an ID already in use in the table with the same name.
+     * The highest ID is read in the current transaction, so rows it inserted and flushed are counted
+     * @param sequence the name of the sequence and its table
+     * @param idColumn the ID column of the table
+     */
+    public void advancePastTable(String sequence, String idColumn) {
+        Long max = jdbc.queryForObject("SELECT COALESCE(MAX(" + idColumn + "), 0) FROM " + sequence, Long.class);
+        advancePast(sequence, max == null ? 0 : max);
+    }
+
+    /**
+     * Reserve a new block of IDs from the database
+     * @param sequence the name of the sequence
+     * @param currentMax returns the highest ID currently in the table
+     * @return the newly reserved block
+     */
+    private Block reserveBlock(String sequence, LongSupplier currentMax) {
+        long end = reserve(sequence, blockSize, currentMax);
+        return new Block(end - blockSize, end);
+    }
+
+    /**
+     * Move a sequence forward in its own transaction, creating it if it does not exist
+     * @param sequence the name of the sequence
+     * @param size the number of IDs to reserve
+     * @param currentMax returns the highest ID currently in the table
+     * @return the first ID past the end of the reserved IDs
+     */
+    private long reserve(String sequence, long size, LongSupplier currentMax) {
+        return reservation.execute(status -> {
+            if (repo.reserve(sequence, size) == 0) {
+                repo.createIfAbsent(sequence, currentMax.getAsLong() + 1);
+                repo.reserve(sequence, size);
+            }
+            return repo.nextValue(sequence);
+        });
+    }
+
+    /**
+     * Sequence holds the block of IDs currently being handed out for one table
+     */
+    private static class Sequence {
+
+        /** The block IDs are being taken from, null until the first block is reserved */
+        private volatile Block current;
+
+        /**
+         * Create an empty sequence
+         * @param name the name of the sequence (unused, allows use as a method reference)
+         */
+        private Sequence(String name) {}
+    }
+
+    /**
+     * Block is a range of reserved IDs, from next (inclusive) to limit (exclusive)
+     */
+    private static class Block {
+
+        /** The next ID to hand out */
+        private final AtomicLong next;
+
+        /** The first ID past the end of the block */
+        private final long limit;
+
+        /**
+         * Create a block of IDs
+         * @param start the first ID in the block
+         * @param limit the first ID past the end of the block
+         */
+        private Block(long start, long limit) {
+            this.next = new AtomicLong(start);
+            this.limit = limit;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package CSC540.WolfWR.services;
+
+import CSC540.WolfWR.models.Merchandise;
+import CSC540.WolfWR.repositories.MerchandiseRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.function.Supplier;
+
+/**
+ * Inventory Service changes the stock of merchandise entries safely while registers and other warehouse
+ * staff change the same entries.
+ *
+ * Each change reads the current entries, checks the result is valid, and saves them in one short transaction.
+ * Merchandise is versioned, so if another change saved an entry first the save fails instead of overwriting it.
+ * The whole change is then tried again with fresh copies, up to wolfwr.inventory.max-attempts times.
+ * No rows are locked while a change is being worked out.
+ *
+ * @author Brandon Jiang
+ */
+@Component
+public class InventoryService {
+
+    /** Repository connection between the Merchandise table and program code */
+    @Autowired
+    private MerchandiseRepository merchRepo;
+
+    /** Keeps the lots used at checkout up to date */
+    @Autowired
+    private MerchandiseService merchServ;
+
+    /** Runs each attempt in its own transaction, so a failed attempt can be retried with fresh data */
+    private final TransactionTemplate attemptTx;
+
+    /** Number of times a change is tried before giving up */
+    @Value("${wolfwr.inventory.max-attempts:5}")
+    private int maxAttempts;
+
+    /**
+     * Constructor that sets up the transaction used for each attempt
+     * @param txManager the transaction manager for the database
+     */
+    public InventoryService(PlatformTransactionManager txManager) {
+        this.attemptTx = new TransactionTemplate(txManager);
+        this.attemptTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Add units to or take units from a merchandise entry
+     * @param productID the merchandise entry to change
+     * @param delta the number of units to add, negative to take units away
+     * @return the entry after the change
+     * @throws IllegalArgumentException if the entry does not exist
+     * @throws IllegalStateException if taking the units would leave less than zero in stock,
+     *                               or the entry kept changing until every attempt was used
+     */
+    public Merchandise adjust(long productID, int delta) {
+        return retry(() -> {
+            Merchandise merch = load(productID);
+            change(merch, delta);
+            merchRepo.flush();
+            merchServ.lotChanged(merch);
+            return merch;
+        });
+    }
+
+    /**
+     * Move units from one merchandise entry to another, such as between stores.
+     * Both entries are changed in the same transaction, so units are never lost or counted twice
+     * @param fromProductID the entry giving the units
+     * @param toProductID the entry receiving the units
+     * @param quantity the number of units to move
+     * @return the receiving entry after the move
+     * @throws IllegalArgumentException if either entry does not exist, they are the same entry,
+     *                                  or the quantity is not positive
+     * @throws IllegalStateException if the giving entry does not have enough stock,
+     *                               or the entries kept changing until every attempt was used
+     */
+    public Merchandise transfer(long fromProductID, long toProductID, int quantity) {
+        if (fromProductID == toProductID) {
+            throw new IllegalArgumentException("Cannot transfer merchandise to itself");
+        }
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be positive");
+        }
+        return retry(() -> {
+            Merchandise from = load(fromProductID);
+            Merchandise to = load(toProductID);
+            change(from, -quantity);
+            change(to, quantity);
+            merchRepo.flush();
+            merchServ.lotChanged(from);
+            merchServ.lotChanged(to);
+            return to;
+        });
+    }
+
+    /**
+     * Run a change in its own transaction, trying again if another change saved the same entries first
+     * @param change the change to make, which must read every entry it saves
+     * @param <T> the type returned by the change
+     * @return the result of the first attempt that succeeds
+     * @throws IllegalStateException if every attempt conflicted with another change
+     */
+    <T> T retry(Supplier<T> change) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return attemptTx.execute(status -> change.get());
+            } catch (OptimisticLockingFailureException e) {
+                if (attempt >= maxAttempts) {
+                    throw new IllegalStateException("Inventory kept changing, gave up after " + attempt + " attempts", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Find a merchandise entry, failing if it does not exist
+     * @param productID the entry to look for
+     * @return the entry
+     * @throws IllegalArgumentException if the entry does not exist
+     */
+    private Merchandise load(long productID) {
+        return merchRepo.findById(productID)
+                .orElseThrow(() -> new IllegalArgumentException("No merchandise with ID " + productID));
+    }
+
+    /**
+     * Change the quantity of an entry, failing if it would go below zero
+     * @param merch the entry to change
+     * @param delta the number of units to add, negative to take units away
+     * @throws IllegalStateException if the quantity would go below zero
+     */
+    private static void change(Merchandise merch, int delta) {
+        int quantity = merch.getQuantity() + delta;
+        if (quantity < 0) {
+            throw new IllegalStateException("Insufficient stock for product " + merch.getProductID());
+        }
+        merch.setQuantity(quantity);
+    }
+}
@@ -0,0 +1,273 @@
+package CSC540.WolfWR.services;
+
+import CSC540.WolfWR.models.Merchandise;
+import CSC540.WolfWR.models.StockTransfer;
+import CSC540.WolfWR.models.Store;
+import CSC540.WolfWR.repositories.MerchandiseRepository;
+import CSC540.WolfWR.repositories.StockTransferRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Inventory Transfer Service moves stock between stores, many products at a time.
+ *
+ * A batch of transfers is one transaction: every source entry is read in one query, every destination entry is
+ * found with one query on the store and SKU index, and either every line moves or none do.
+ * Units are added to an entry at the receiving store with the same SKU, expiration date and prices as the source.
+ * If there is none, a new entry is made with the source's prices and dates.
+ * Every line is recorded in the stock_transfer ledger under one batch ID.
+ *
+ * Batches are retried through the Inventory Service when a register or another transfer changes
+ * the same merchandise at the same time.
+ *
+ * @author Brandon Jiang
+ */
+@Component
+public class InventoryTransferService {
+
+    /** Persistence context used to add new rows to the batch */
+    @PersistenceContext
+    private EntityManager em;
+
+    /** Repository connection between the Merchandise table and program code */
+    @Autowired
+    private MerchandiseRepository merchRepo;
+
+    /** Repository connection between the stock transfer ledger and program code */
+    @Autowired
+    private StockTransferRepository transferRepo;
+
+    /** Runs each batch in a transaction and retries it on conflicts */
+    @Autowired
+    private InventoryService inventoryServ;
+
+    /** Hands out IDs for new merchandise entries and keeps the lots used at checkout up to date */
+    @Autowired
+    private MerchandiseService merchServ;
+
+    /** Finds the catalog entry of merchandise stocked before SKUs were assigned */
+    @Autowired
+    private ProductService productServ;
+
+    /** Hands out IDs for transfers and batches */
+    @Autowired
+    private IdService idServ;
+
+    /**
+     * Move stock of one merchandise entry to another store
+     * @param from the store giving the stock
+     * @param to the store receiving the stock
+     * @param productID the merchandise entry at the giving store
+     * @param quantity the number of units to move
+     * @return the ledger entry for the move
+     * @throws IllegalArgumentException if the move is not valid
+     * @throws IllegalStateException if there is not enough stock, or the merchandise kept changing
+     */
+    public StockTransfer transfer(Store from, Store to, long productID, int quantity) {
+        return transfer(from, to, List.of(new TransferLine(productID, quantity))).get(0);
+    }
+
+    /**
+     * Move stock of many merchandise entries to another store in one transaction.
+     * Lines for the same entry are added together
+     * @param from the store giving the stock
+     * @param to the store receiving the stock
+     * @param lines the merchandise entries at the giving store and how many units of each to move
+     * @return the ledger entries for the batch, one per merchandise entry moved
+     * @throws IllegalArgumentException if the stores are the same, a quantity is not positive,
+     *                                  or an entry does not exist at the giving store
+     * @throws IllegalStateException if an entry does not have enough stock, or the merchandise kept changing.
+     *                               Nothing is moved in either case
+     */
+    public List<StockTransfer> transfer(Store from, Store to, List<TransferLine> lines) {
+        if (from.getStoreID() == to.getStoreID()) {
+            throw new IllegalArgumentException("Sender and recipient cannot be the same");
+        }
+        // Sorted by product ID so batches touching the same entries write them in the same order
+        Map<Long, Integer> quantities = new TreeMap<>();
+        for (TransferLine line : lines) {
+            if (line.getQuantity() <= 0) {
+                throw new IllegalArgumentException("Quantity must be positive");
+            }
+            quantities.merge(line.getProductID(), line.getQuantity(), Integer::sum);
+        }
+        if (quantities.isEmpty()) {
+            return List.of();
+        }
+
+        return inventoryServ.retry(() -> moveBatch(from, to, quantities));
+    }
+
+    /**
+     * One attempt at moving a batch, run inside a transaction
+     * @param from the store giving the stock
+     * @param to the store receiving the stock
+     * @param quantities how many units to move, keyed by product ID at the giving store
+     * @return the ledger entries for the batch
+     */
+    private List<StockTransfer> moveBatch(Store from, Store to, Map<Long, Integer> quantities) {
+        Map<Long, Merchandise> sources = new HashMap<>();
+        for (Merchandise m : merchRepo.findAllById(quantities.keySet())) {
+            sources.put(m.getProductID(), m);
+        }
+
+        Set<Long> skus = new HashSet<>();
+        for (Long productID : quantities.keySet()) {
+            Merchandise source = sources.get(productID);
+            if (source == null || source.getStore().getStoreID() != from.getStoreID()) {
+                throw new IllegalArgumentException("No merchandise with ID " + productID + " at store " + from.getStoreID());
+            }
+            skus.add(productServ.productOf(source).getSku());
+        }
+
+        // Stock only joins an entry of the same lot, so units keep their expiration date and prices.
+        // The lowest ID of a lot receives the stock, so repeated batches keep using the same entry
+        Map<LotKey, Merchandise> destinations = new HashMap<>();
+        for (Merchandise m : merchRepo.findByStoreAndSkus(to.getStoreID(), skus)) {
+            destinations.putIfAbsent(new LotKey(m), m);
+        }
+
+        long batchID = idServ.nextID("stock_transfer_batch", transferRepo::getMaxBatchID);
+        LocalDate today = LocalDate.now();
+        List<StockTransfer> ledger = new ArrayList<>();
+        for (Map.Entry<Long, Integer> line : quantities.entrySet()) {
+            Merchandise source = sources.get(line.getKey());
+            int quantity = line.getValue();
+            if (source.getQuantity() < quantity) {
+                throw new IllegalStateException("Insufficient stock for product " + source.getProductID());
+            }
+            source.setQuantity(source.getQuantity() - quantity);
+
+            Merchandise destination = destinations.computeIfAbsent(new LotKey(source), lot -> newEntry(source, to));
+            destination.setQuantity(destination.getQuantity() + quantity);
+            ledger.add(new StockTransfer(idServ.nextID("stock_transfer", transferRepo::getMaxID), batchID,
+                    source, destination, quantity, today));
+        }
+        // New rows are persisted directly, since saving an entity with an assigned ID would look it up first
+        for (Merchandise destination : destinations.values()) {
+            if (!em.contains(destination)) {
+                em.persist(destination);
+            }
+        }
+        ledger.forEach(em::persist);
+        // Flushed through the repository so a version conflict is reported in a form the retry recognizes
+        merchRepo.flush();
+        sources.values().forEach(merchServ::lotChanged);
+        destinations.values().forEach(merchServ::lotChanged);
+        return ledger;
+    }
+
+    /**
+     * Make an empty merchandise entry at a store, copying a product from another store
+     * @param source the entry being copied
+     * @param store the store the new entry is for
+     * @return the new entry, not yet saved
+     */
+    private Merchandise newEntry(Merchandise source, Store store) {
+        Merchandise merch = new Merchandise();
+        merch.setProductID(merchServ.generateID());
+        merch.setProductName(source.getProductName());
+        merch.setQuantity(0);
+        merch.setBuyPrice(source.getBuyPrice());
+        merch.setMarketPrice(source.getMarketPrice());
+        merch.setProductionDate(source.getProductionDate());
+        merch.setExpirationDate(source.getExpirationDate());
+        merch.setSupplier(source.getSupplier());
+        merch.setProduct(source.getProduct());
+        merch.setStore(store);
+        return merch;
+    }
+
+    /**
+     * LotKey is what two merchandise entries at a store must share to hold the same stock:
+     * the product, the expiration date and the prices
+     */
+    private static class LotKey {
+
+        /** The product the entry is stock of */
+        private final long sku;
+
+        /** The day the entry can no longer be sold */
+        private final LocalDate expirationDate;
+
+        /** The price paid by the store for each unit */
+        private final double buyPrice;
+
+        /** The price paid by customers for each unit */
+        private final double marketPrice;
+
+        /**
+         * Constructor for the lot of a merchandise entry
+         * @param merch the entry, with its SKU set
+         */
+        private LotKey(Merchandise merch) {
+            this.sku = merch.getProduct().getSku();
+            this.expirationDate = merch.getExpirationDate();
+            this.buyPrice = merch.getBuyPrice();
+            this.marketPrice = merch.getMarketPrice();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o == null || getClass() != o.getClass()) return false;
+            LotKey that = (LotKey) o;
+            return sku == that.sku && Objects.equals(expirationDate, that.expirationDate)
+                    && Double.compare(buyPrice, that.buyPrice) == 0 && Double.compare(marketPrice, that.marketPrice) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(sku, expirationDate, buyPrice, marketPrice);
+        }
+    }
+
+    /**
+     * TransferLine is a number of units of one merchandise entry to move
+     */
+    public static class TransferLine {
+
+        /** The merchandise entry at the giving store */
+        private final long productID;
+
+        /** The number of units to move */
+        private final int quantity;
+
+        /**
+         * Constructor for a line of a transfer
+         * @param productID the merchandise entry at the giving store
+         * @param quantity the number of units to move
+         */
+        public TransferLine(long productID, int quantity) {
+            this.productID = productID;
+            this.quantity = quantity;
+        }
+
+        /**
+         * Get the product ID of the merchandise entry at the giving store
+         * @return the product ID
+         */
+        public long getProductID() {
+            return productID;
+        }
+
+        /**
+         * Get the number of units to move
+         * @return the quantity
+         */
+        public int getQuantity() {
+            return quantity;
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package CSC540.WolfWR.services;
+
+import CSC540.WolfWR.models.Merchandise;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * LotIndex is an in-memory copy of the merchandise in stock at each store, used to pick which lots of a product
+ * a purchase is taken from without going to the database.
+ *
+ * Each store keeps the lots of every product (by SKU) sorted by expiration date, so the lot that expires first
+ * is always at the front. Lots that expired before the day of a lookup are left out of it, since they can no
+ * longer be sold. Lookups never lock; changes to a store lock only that store.
+ * Quantities here may trail the database by a moment, so the stock is still checked when a purchase is saved.
+ *
+ * @author Brandon Jiang
+ */
+public class LotIndex {
+
+    /** Lots expiring first come first and lots that never expire last, ties are broken by product ID so the order never changes */
+    private static final Comparator<Lot> FIRST_EXPIRED_FIRST =
+            Comparator.comparing(Lot::getExpirationDate, Comparator.nullsLast(Comparator.<LocalDate>naturalOrder()))
+                    .thenComparingLong(Lot::getProductID);
+
+    /** The lots of each store that has been loaded, keyed by store ID */
+    private final Map<Long, StoreLots> stores = new ConcurrentHashMap<>();
+
+    /** Remove every store from the index */
+    public void clear() {
+        stores.clear();
+    }
+
+    /**
+     * Check whether a store was loaded recently enough to be used
+     * @param storeID the store to look for
+     * @param maxAgeMillis how long a store is used before it is loaded again
+     * @return true if the store is loaded and not due for a reload
+     */
+    public boolean isFresh(long storeID, long maxAgeMillis) {
+        StoreLots lots = stores.get(storeID);
+        return lots != null && System.currentTimeMillis() - lots.loadedAt <= maxAgeMillis;
+    }
+
+    /**
+     * Replace everything known about a store with the merchandise given
+     * @param storeID the store being loaded
+     * @param inventory the merchandise in stock at the store. Entries without a SKU are left out
+     */
+    public void load(long storeID, List<Merchandise> inventory) {
+        StoreLots lots = new StoreLots();
+        for (Merchandise m : inventory) {
+            if (m.getProduct() != null) {
+                lots.put(new Lot(m, m.getQuantity()));
+            }
+        }
+        stores.put(storeID, lots);
+    }
+
+    /**
+     * Record the current quantity and dates of a merchandise entry.
+     * Ignored if the entry's store has not been loaded, since it is read in full when it is
+     * @param lot the entry as it is now
+     */
+    public void update(Lot lot) {
+        StoreLots lots = stores.get(lot.getStoreID());
+        if (lots != null) {
+            lots.put(lot);
+        }
+    }
+
+    /**
+     * Take units sold from a merchandise entry
+     * @param productID the entry the units were taken from
+     * @param quantity the number of units taken
+     */
+    public void take(long productID, int quantity) {
+        for (StoreLots lots : stores.values()) {
+            if (lots.take(productID, quantity)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Get the lots of a product at a store that can still be sold on a day, the one expiring first at the front
+     * @param storeID the store to look in
+     * @param sku the product to look for
+     * @param date the day of the sale
+     * @return the lots in the order they should be sold, empty if the store is not loaded or has none
+     */
+    public List<Lot> lots(long storeID, long sku, LocalDate date) {
+        StoreLots lots = stores.get(storeID);
+        if (lots == null) {
+            return List.of();
+        }
+        NavigableSet<Lot> bySku = lots.bySku.get(sku);
+        if (bySku == null) {
+            return List.of();
+        }
+        List<Lot> sellable = new ArrayList<>();
+        for (Lot lot : bySku) {
+            if (lot.isSellableOn(date)) {
+                sellable.add(lot);
+            }
+        }
+        return sellable;
+    }
+
+    /**
+     * Get the lot expiring first of every product at a store that can still be sold on a day
+     * @param storeID the store to look in
+     * @param date the day of the sale
+     * @return one lot per product, ordered by product name. Products with only expired lots are left out
+     */
+    public List<Lot> products(long storeID, LocalDate date) {
+        StoreLots lots = stores.get(storeID);
+        if (lots == null) {
+            return List.of();
+        }
+        List<Lot> first = new ArrayList<>();
+        for (NavigableSet<Lot> bySku : lots.bySku.values()) {
+            // Iterated instead of calling first(), which fails if the last lot sells out at the same time
+            for (Lot lot : bySku) {
+                if (lot.isSellableOn(date)) {
+                    first.add(lot);
+                    break;
+                }
+            }
+        }
+        first.sort(Comparator.comparing((Lot l) -> l.getMerch().getProductName()).thenComparingLong(Lot::getSku));
+        return first;
+    }
+
+    /**
+     * StoreLots holds the lots of one store
+     */
+    private static class StoreLots {
+
+        /** When the store was loaded from the database, in milliseconds */
+        private final long loadedAt = System.currentTimeMillis();
+
+        /** Lots in stock sorted by expiration date, keyed by SKU */
+        private final Map<Long, NavigableSet<Lot>> bySku = new ConcurrentHashMap<>();
+
+        /** Every lot in stock, keyed by product ID */
+        private final Map<Long, Lot> byProduct = new ConcurrentHashMap<>();
+
+        /**
+         * Add a lot, replacing what was known about it. Lots with nothing left are removed
+         * @param lot the lot as it is now
+         */
+        private synchronized void put(Lot lot) {
+            Lot old = byProduct.remove(lot.getProductID());
+            if (old != null) {
+                bySku.get(old.getSku()).remove(old);
+            }
+            if (lot.getQuantity() > 0) {
+                byProduct.put(lot.getProductID(), lot);
+                bySku.computeIfAbsent(lot.getSku(), sku -> new ConcurrentSkipListSet<>(FIRST_EXPIRED_FIRST)).add(lot);
+            }
+        }
+
+        /**
+         * Take units from a lot if it is at this store
+         * @param productID the lot the units were taken from
+         * @param quantity the number of units taken
+         * @return true if the lot is at this store
+         */
+        private synchronized boolean take(long productID, int quantity) {
+            Lot lot = byProduct.get(productID);
+            if (lot == null) {
+                return false;
+            }
+            put(new Lot(lot.getMerch(), lot.getQuantity() - quantity));
+            return true;
+        }
+    }
+
+    /**
+     * Lot is one merchandise entry in stock and how many units it has. Lots are never changed once made
+     */
+    public static class Lot {
+
+        /** The merchandise entry, used to price and sell the lot */
+        private final Merchandise merch;
+
+        /** The product the lot is stock of */
+        private final long sku;
+
+        /** The store holding the lot */
+        private final long storeID;
+
+        /** The day the lot can no longer be sold */
+        private final LocalDate expirationDate;
+
+        /** The number of units in stock */
+        private final int quantity;
+
+        /**
+         * Constructor for a lot
+         * @param merch the merchandise entry, with its SKU set
+         * @param quantity the number of units in stock
+         */
+        public Lot(Merchandise merch, int quantity) {
+            this.merch = merch;
+            this.sku = merch.getProduct().getSku();
+            this.storeID = merch.getStore().getStoreID();
+            this.expirationDate = merch.getExpirationDate();
+            this.quantity = quantity;
+        }
+
+        /**
+         * Check whether the lot can be sold on a day, which it can until the day after it expires
+         * @param date the day of the sale
+         * @return true if the lot has no expiration date or expires on or after the day
+         */
+        public boolean isSellableOn(LocalDate date) {
+            return expirationDate == null || !expirationDate.isBefore(date);
+        }
+
+        /**
+         * Get the merchandise entry of the lot
+         * @return the merchandise entry
+         */
+        public Merchandise getMerch() {
+            return merch;
+        }
+
+        /**
+         * Get the product ID of the merchandise entry
+         * @return the product ID
+         */
+        public long getProductID() {
+            return merch.getProductID();
+        }
+
+        /**
+         * Get the SKU of the product the lot is stock of
+         * @return the SKU
+         */
+        public long getSku() {
+            return sku;
+        }
+
+        /**
+         * Get the ID of the store holding the lot
+         * @return the store ID
+         */
+        public long getStoreID() {
+            return storeID;
+        }
+
+        /**
+         * Get the day the lot can no longer be sold
+         * @return the expiration date
+         */
+        public LocalDate getExpirationDate() {
+            return expirationDate;
+        }
+
+        /**
+         * Get the number of units in stock
+         * @return the quantity
+         */
+        public int getQuantity() {
+            return quantity;
+        }
+    }
+}
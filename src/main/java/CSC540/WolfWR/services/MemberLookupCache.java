@@ -0,0 +1,59 @@
+package CSC540.WolfWR.services;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * MemberLookupCache remembers which member ID goes with a phone number or email address,
+ * so repeat sign-ins at the register skip the search and go straight to the member's primary key.
+ *
+ * Only recently used entries are kept; once the cache is full, the entry used longest ago is dropped.
+ * Entries can go stale when a member changes their phone number or email, so callers must check
+ * that the member found still matches before using it.
+ *
+ * @author Brandon Jiang
+ */
+public class MemberLookupCache {
+
+    /** Member IDs keyed by normalized phone number or email, in least recently used order */
+    private final Map<String, Long> ids;
+
+    /**
+     * Create an empty cache
+     * @param capacity the most entries to keep
+     */
+    public MemberLookupCache(int capacity) {
+        this.ids = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Get the member ID remembered for a phone number or email
+     * @param key the normalized phone number or email
+     * @return the member ID, or null if it is not cached
+     */
+    public synchronized Long get(String key) {
+        return ids.get(key);
+    }
+
+    /**
+     * Remember the member ID for a phone number or email
+     * @param key the normalized phone number or email
+     * @param memberID the member it belongs to
+     */
+    public synchronized void put(String key, long memberID) {
+        ids.put(key, memberID);
+    }
+
+    /**
+     * Forget a phone number or email
+     * @param key the normalized phone number or email
+     */
+    public synchronized void remove(String key) {
+        ids.remove(key);
+    }
+}
@@ -4,11 +4,12 @@ package CSC540.WolfWR.services;
 import CSC540.WolfWR.models.Member;
 import CSC540.WolfWR.repositories.MemberRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.Collections;
 import java.util.List;
 
 /**
@@ -25,6 +26,17 @@ public class MemberService extends Services<Member, Long> {
     @Autowired
     private MemberRepository repo;
 
+    /** Hands out unique ID numbers */
+    @Autowired
+    private IdService idServ;
+
+    /** Number of phone numbers and emails remembered for sign-in, 0 to always search the database */
+    @Value("${wolfwr.member.lookup-cache.size:10000}")
+    private int lookupCacheSize;
+
+    /** Remembers which member goes with a phone number or email, created on first use */
+    private volatile MemberLookupCache lookupCache;
+
     /** Returns the repository connection between the Member table and program code */
     @Override
     protected JpaRepository<Member, Long> getRepo() {
@@ -36,8 +48,7 @@ public class MemberService extends Services<Member, Long> {
      * @return the next ID number
      */
     public long generateID() {
-        List<Long> ids = repo.getIDs();
-        return Collections.max(ids) + 1;
+        return idServ.nextID("members", repo::getMaxID);
     }
 
     /**
@@ -47,4 +58,98 @@ public class MemberService extends Services<Member, Long> {
     public List<Member> viewMembers() {
         return repo.getMembers();
     }
+
+    /**
+     * Get one page of members in ID order. Pages are found by ID rather than by position,
+     * so each page costs the same no matter how far into the list it is
+     * @param search text the first name, last name, email, or phone number must start with, or null for all members
+     * @param afterID the highest member ID on the previous page, 0 for the first page
+     * @param size the most members to return
+     * @param activeOnly true to leave out cancelled memberships
+     * @return up to size members with IDs above afterID
+     */
+    public List<Member> listPage(String search, long afterID, int size, boolean activeOnly) {
+        if (search == null || search.isBlank()) {
+            return repo.findPage(afterID, activeOnly, Limit.of(size));
+        }
+        return repo.searchPage(prefixPattern(search), afterID, activeOnly, Limit.of(size));
+    }
+
+    /**
+     * Find a member by phone number or email address, such as when signing in at the register.
+     * Input containing '@' is treated as an email, and anything else as a phone number (only its digits are used).
+     * If more than one member shares the phone number or email, the one with the lowest ID is returned
+     * @param contact the phone number or email typed in
+     * @return the member, or null if no member matches
+     */
+    public Member findByPhoneOrEmail(String contact) {
+        String key = normalizeContact(contact);
+        if (key.isEmpty()) {
+            return null;
+        }
+        MemberLookupCache cache = lookupCache();
+        if (cache != null) {
+            Long id = cache.get(key);
+            if (id != null) {
+                Member m = findByID(id);
+                // The member may have changed their phone number or email since it was cached
+                if (m != null && key.equals(normalizeContact(key.contains("@") ? m.getEmail() : m.getPhoneNo()))) {
+                    return m;
+                }
+                cache.remove(key);
+            }
+        }
+
+        List<Member> found = key.contains("@") ? repo.findByEmail(key) : repo.findByPhone(key);
+        if (found.isEmpty()) {
+            return null;
+        }
+        Member m = found.get(0);
+        if (cache != null) {
+            cache.put(key, m.getId());
+        }
+        return m;
+    }
+
+    /**
+     * Put a phone number or email in the form it is stored and cached in
+     * @param contact the phone number or email
+     * @return the email in lower case, or the digits of the phone number
+     */
+    private String normalizeContact(String contact) {
+        if (contact == null) {
+            return "";
+        }
+        String trimmed = contact.trim();
+        return trimmed.contains("@") ? trimmed.toLowerCase() : Member.normalizePhone(trimmed);
+    }
+
+    /**
+     * Store every member's phone number as digits only, for members saved before phone numbers were
+     * stored that way or inserted without the services
+     * @return the number of members whose phone number changed
+     */
+    public int normalizePhoneNumbers() {
+        // Deferred saves have to reach the database before it is updated
+        flush();
+        return repo.normalizePhoneNumbers();
+    }
+
+    /**
+     * Get the lookup cache, creating it the first time it is needed
+     * @return the cache, or null if caching is turned off
+     */
+    private MemberLookupCache lookupCache() {
+        if (lookupCacheSize <= 0) {
+            return null;
+        }
+        if (lookupCache == null) {
+            synchronized (this) {
+                if (lookupCache == null) {
+                    lookupCache = new MemberLookupCache(lookupCacheSize);
+                }
+            }
+        }
+        return lookupCache;
+    }
 }
@@ -2,20 +2,29 @@ package CSC540.WolfWR.services;
 
 import CSC540.WolfWR.models.Merchandise;
 import CSC540.WolfWR.models.Store;
-import CSC540.WolfWR.models.Supplier;
 import CSC540.WolfWR.repositories.MerchandiseRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Collections;
+import java.util.Map;
 
 /**
  * Merchandise Service has methods to share the connection to the Merchandise database table and to get the next ID number.
- * Merchandise Service can also search for store inventory and deliveries of merchandise
+ * Merchandise Service can also search for store inventory and receive deliveries from suppliers.
+ * Merchandise is given the SKU of its catalog Product when it is saved.
+ *
+ * The lots in stock at each store are kept in an in-memory LotIndex so checkout can pick lots without a query.
+ * A store is loaded the first time it is used and reloaded periodically to pick up changes made by other
+ * instances of the program. Stock changes made through this service are applied to it once they commit,
+ * and other services report the entries they change with lotChanged.
  * Any other methods that would interact with the Merchandise table should go here.
  * @author Brandon Jiang
  */
@@ -27,21 +36,49 @@ public class MerchandiseService extends Services<Merchandise, Long> {
     @Autowired
     private MerchandiseRepository repo;
 
+    /** Hands out unique ID numbers */
+    @Autowired
+    private IdService idServ;
+
+    /** Records merchandise received from suppliers */
+    @Autowired
+    private DeliveryService deliveryServ;
+
+    /** Assigns SKUs to merchandise as it is saved */
+    @Autowired
+    private ProductService productServ;
+
+    /** Runs batched statements on the same connection as the current transaction */
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    /** In-memory copy of the lots in stock at each store, used to pick lots at checkout */
+    private final LotIndex lots = new LotIndex();
+
+    /** How long a store's lots are used before they are reloaded from the database, in seconds */
+    @Value("${wolfwr.checkout.lot-index.refresh-seconds:300}")
+    private long lotRefreshSeconds;
+
     /** Returns the repository connection between the Merchandise table and program code */
     @Override
     protected JpaRepository<Merchandise, Long> getRepo() {
         return this.repo;
     }
 
-    /**
-     * Get all merchandise delivered to all stores from a given supplier during a given timeframe
-     * @param start the first day of the timeframe (inclusive)
-     * @param end the last day of the timeframe (inclusive)
-     * @param s the supplier to look for
-     * @return List of all merchandise from supplier s delivered between start and end (inclusive)
-     */
-    public List<Merchandise> deliveriesByTimeAndSupplier(LocalDate start, LocalDate end, Supplier s) {
-        return repo.deliveriesByTime(start, end, s.getSupplierID());
+    /** Give the merchandise its SKU, then save it to the database */
+    @Override
+    public void save(Merchandise merch) {
+        productServ.productOf(merch);
+        super.save(merch);
+        lotChanged(merch);
+    }
+
+    /** Give the merchandise its SKU, then save it with the next batch of writes */
+    @Override
+    public void saveDeferred(Merchandise merch) {
+        productServ.productOf(merch);
+        super.saveDeferred(merch);
+        lotChanged(merch);
     }
 
     /**
@@ -53,12 +90,161 @@ public class MerchandiseService extends Services<Merchandise, Long> {
         return this.repo.storeInventory(s.getStoreID());
     }
 
+    /**
+     * Take stock of several products in one batched update.
+     * Each product is only decremented if it has enough stock left, so stock can never go below zero
+     * even when several registers sell the same product at once.
+     * Should be called inside a transaction so a failure undoes every decrement.
+     * @param quantities how many units to take of each product, keyed by product ID
+     * @throws IllegalStateException if any product does not have enough stock
+     */
+    public void decrementStock(Map<Long, Integer> quantities) {
+        if (quantities.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<Long, Integer>> lines = new ArrayList<>(quantities.entrySet());
+        int[] updated = jdbc.batchUpdate(
+                "UPDATE merchandise SET quantity = quantity - ?, version = version + 1 WHERE productid = ? AND quantity >= ?",
+                lines, lines.size(), (ps, line) -> {
+                    ps.setInt(1, line.getValue());
+                    ps.setLong(2, line.getKey());
+                    ps.setInt(3, line.getValue());
+                })[0];
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 0) {
+                throw new IllegalStateException("Insufficient stock for product " + lines.get(i).getKey());
+            }
+        }
+        afterCommit(() -> lines.forEach(line -> lots.take(line.getKey(), line.getValue())));
+    }
+
+    /**
+     * Get how much of a merchandise entry is in stock right now
+     * @param productID the merchandise entry to look for
+     * @return the quantity in stock, 0 if there is no such entry
+     */
+    @Transactional(readOnly = true)
+    public int stockOf(long productID) {
+        Integer quantity = repo.quantityOf(productID);
+        return quantity == null ? 0 : quantity;
+    }
+
+    /**
+     * Add a new merchandise entry received from its supplier, and record the delivery
+     * @param merch the new merchandise entry, with the quantity received
+     * @param date the day the merchandise was received
+     */
+    public void receive(Merchandise merch, LocalDate date) {
+        save(merch);
+        deliveryServ.record(merch, merch.getQuantity(), date);
+    }
+
+    /**
+     * Add units received from the supplier to an existing merchandise entry, and record the delivery.
+     * The quantity is added by the database, so sales made at the same time are not lost
+     * @param merch the merchandise entry receiving the units
+     * @param quantity the number of units received
+     * @param date the day the units were received
+     */
+    public void restock(Merchandise merch, int quantity, LocalDate date) {
+        // Write pending changes first so they cannot overwrite the new quantity later
+        flush();
+        jdbc.update("UPDATE merchandise SET quantity = quantity + ?, version = version + 1 WHERE productid = ?",
+                quantity, merch.getProductID());
+        if (em.contains(merch)) {
+            em.refresh(merch);
+        } else {
+            merch.setQuantity(merch.getQuantity() + quantity);
+        }
+        lotChanged(merch);
+        deliveryServ.record(merch, quantity, date);
+    }
+
     /**
      * Get the next available value for a unique ID number
      * @return the next ID number
      */
     public long generateID() {
-        List<Long> ids = repo.getIDs();
-        return Collections.max(ids) + 1;
+        return idServ.nextID("merchandise", repo::getMaxID);
+    }
+
+    /**
+     * Get one page of the merchandise in stock at a store in ID order, along with its supplier and store
+     * @param s the store to look for
+     * @param search text the product name must start with, or null for all merchandise
+     * @param afterID the highest product ID on the previous page, 0 for the first page
+     * @param size the most entries to return
+     * @return up to size merchandise entries with IDs above afterID
+     */
+    public List<Merchandise> storeInventoryPage(Store s, String search, long afterID, int size) {
+        if (search == null || search.isBlank()) {
+            return repo.storeInventoryPage(s.getStoreID(), afterID, Limit.of(size));
+        }
+        return repo.searchStoreInventoryPage(s.getStoreID(), prefixPattern(search), afterID, Limit.of(size));
+    }
+
+    /**
+     * Get the lots of a product at a store that can still be sold on a day from the in-memory index,
+     * the one expiring first at the front
+     * @param s the store to look in
+     * @param sku the product to look for
+     * @param date the day of the sale
+     * @return the lots in the order they should be sold
+     */
+    @Transactional(readOnly = true)
+    public List<LotIndex.Lot> lotsOf(Store s, long sku, LocalDate date) {
+        return currentLots(s).lots(s.getStoreID(), sku, date);
+    }
+
+    /**
+     * Get the lot expiring first of every product at a store that can still be sold on a day from the in-memory index
+     * @param s the store to look in
+     * @param date the day of the sale
+     * @return one lot per product, ordered by product name
+     */
+    @Transactional(readOnly = true)
+    public List<LotIndex.Lot> productsAt(Store s, LocalDate date) {
+        return currentLots(s).products(s.getStoreID(), date);
+    }
+
+    /**
+     * Record a change to a merchandise entry's stock in the in-memory index once the current transaction commits.
+     * Called by services that change merchandise without going through this one
+     * @param merch the entry as it is now, with its SKU set
+     */
+    public void lotChanged(Merchandise merch) {
+        if (merch.getProduct() == null) {
+            return;
+        }
+        // Copied now, since the entry may change again before the transaction commits
+        LotIndex.Lot lot = new LotIndex.Lot(merch, merch.getQuantity());
+        afterCommit(() -> lots.update(lot));
+    }
+
+    /**
+     * Forget every store in the in-memory index, so each is loaded again when it is next used.
+     * Needed after merchandise is changed without going through the services, such as when bulk loading
+     */
+    public void clearLotIndex() {
+        lots.clear();
+    }
+
+    /**
+     * Get the lot index, loading the store first if it has never been loaded or is due for a reload.
+     * Loading only reads: merchandise without a SKU is left out until ProductService.linkMerchandise gives it one,
+     * which is done at startup and after bulk loads
+     * @param s the store about to be looked up
+     * @return the lot index
+     */
+    private LotIndex currentLots(Store s) {
+        long maxAge = lotRefreshSeconds * 1000;
+        if (!lots.isFresh(s.getStoreID(), maxAge)) {
+            synchronized (lots) {
+                if (!lots.isFresh(s.getStoreID(), maxAge)) {
+                    lots.load(s.getStoreID(), repo.storeInventory(s.getStoreID()));
+                }
+            }
+        }
+        return lots;
     }
 }
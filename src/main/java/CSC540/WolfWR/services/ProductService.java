@@ -0,0 +1,78 @@
+package CSC540.WolfWR.services;
+
+import CSC540.WolfWR.models.Merchandise;
+import CSC540.WolfWR.models.Product;
+import CSC540.WolfWR.models.Supplier;
+import CSC540.WolfWR.repositories.ProductRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Product Service has methods to share the connection to the product catalog and to assign SKUs.
+ * Merchandise is given the SKU of the catalog entry with its name and supplier, which is added if it does not exist.
+ *
+ * @author Brandon Jiang
+ */
+@Transactional
+@Component
+public class ProductService extends Services<Product, Long> {
+
+    /** Repository connection between the Product table and program code */
+    @Autowired
+    private ProductRepository repo;
+
+    /** Hands out unique SKUs */
+    @Autowired
+    private IdService idServ;
+
+    /** Returns the repository connection between the Product table and program code */
+    @Override
+    protected JpaRepository<Product, Long> getRepo() {
+        return this.repo;
+    }
+
+    /**
+     * Find the catalog entry for a product name from a supplier, adding it if it does not exist
+     * @param name the name of the product
+     * @param supplier the company that sells the product
+     * @return the catalog entry
+     */
+    public Product productFor(String name, Supplier supplier) {
+        Product product = repo.findByNameAndSupplier(name, supplier.getSupplierID());
+        if (product == null) {
+            product = new Product(idServ.nextID("product", repo::getMaxID), name, supplier);
+            // Persisted directly so the merchandise can point at this instance, saving would make a copy
+            em.persist(product);
+        }
+        return product;
+    }
+
+    /**
+     * Make sure a merchandise entry points at its catalog entry
+     * @param merch the merchandise entry
+     * @return the catalog entry for the merchandise
+     */
+    public Product productOf(Merchandise merch) {
+        if (merch.getProduct() == null) {
+            merch.setProduct(productFor(merch.getProductName(), merch.getSupplier()));
+        }
+        return merch.getProduct();
+    }
+
+    /**
+     * Give every merchandise entry without a SKU the SKU for its name and supplier, adding catalog entries
+     * as needed. Used for merchandise stocked before the catalog existed or inserted without the services
+     * @return the number of merchandise entries given a SKU
+     */
+    public int linkMerchandise() {
+        // Deferred saves have to reach the database before the catalog is computed from it
+        flush();
+        long missing = repo.countMissingFromMerchandise();
+        if (missing > 0) {
+            repo.addMissingFromMerchandise(idServ.reserveRange("product", missing, repo::getMaxID), missing);
+        }
+        return repo.linkMerchandise();
+    }
+}
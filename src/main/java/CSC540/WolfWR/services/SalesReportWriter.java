@@ -0,0 +1,114 @@
+package CSC540.WolfWR.services;
+
+import CSC540.WolfWR.repositories.TransactionRepository;
+
+import java.io.PrintStream;
+import java.util.Iterator;
+import java.util.Scanner;
+import java.util.stream.Stream;
+
+/**
+ * SalesReportWriter prints the rows of a sales report as they are read from the database.
+ * Rows are never collected into a list, so memory use stays the same no matter how long the report is.
+ * Each stream passed in is closed once it has been written.
+ *
+ * @author Brandon Jiang
+ */
+public class SalesReportWriter {
+
+    /** How many rows are written between flushes of the output */
+    private static final int FLUSH_INTERVAL = 1000;
+
+    /** Where the report is written */
+    private final PrintStream out;
+
+    /**
+     * Create a writer for the given output
+     * @param out where the report is written
+     */
+    public SalesReportWriter(PrintStream out) {
+        this.out = out;
+    }
+
+    /**
+     * Ask the user how much detail a sales report shows
+     * @param scan scanner to allow user input from the keyboard
+     * @return "summary", "daily", or "itemized", or null if the input is invalid
+     */
+    public static String selectDetail(Scanner scan) {
+        System.out.println("\nPlease select the level of detail for the report:");
+        System.out.println("[1] Summary Only");
+        System.out.println("[2] Daily Totals");
+        System.out.println("[3] Every Transaction");
+        System.out.print("> ");
+
+        switch (scan.nextLine().trim()) {
+            case "1":
+                return "summary";
+            case "2":
+                return "daily";
+            case "3":
+                return "itemized";
+            default:
+                System.out.println("Invalid Input\n");
+                return null;
+        }
+    }
+
+    /**
+     * Write the totals for each store and day
+     * @param days the totals to write
+     * @return the number of rows written
+     */
+    public long writeDailySales(Stream<TransactionRepository.DailySales> days) {
+        long rows = 0;
+        try (days) {
+            Iterator<TransactionRepository.DailySales> it = days.iterator();
+            while (it.hasNext()) {
+                TransactionRepository.DailySales d = it.next();
+                out.printf("Date: %s. Store: %4d. Transactions: %4d. Total: $%4.2f\n",
+                        d.getPurchaseDate().toString(), d.getStoreID(), d.getTransactionCount(), d.getRevenue());
+                rows = flushEvery(rows + 1);
+            }
+        }
+        out.flush();
+        return rows;
+    }
+
+    /**
+     * Write each transaction
+     * @param lines the transactions to write
+     * @param showStore should the store of each transaction be written
+     * @return the number of rows written
+     */
+    public long writeSalesLines(Stream<TransactionRepository.SalesLine> lines, boolean showStore) {
+        long rows = 0;
+        try (lines) {
+            Iterator<TransactionRepository.SalesLine> it = lines.iterator();
+            while (it.hasNext()) {
+                TransactionRepository.SalesLine t = it.next();
+                if (showStore) {
+                    out.printf("Trans ID: %4d. Store: %4d Total: $%4.2f\n",
+                            t.getTransactionID(), t.getStoreID(), t.getTotalPrice());
+                } else {
+                    out.printf("Trans ID: %4d. Total: $%4.2f\n", t.getTransactionID(), t.getTotalPrice());
+                }
+                rows = flushEvery(rows + 1);
+            }
+        }
+        out.flush();
+        return rows;
+    }
+
+    /**
+     * Flush the output every FLUSH_INTERVAL rows so long reports show up while they are still being read
+     * @param rows the number of rows written so far
+     * @return the number of rows written so far
+     */
+    private long flushEvery(long rows) {
+        if (rows % FLUSH_INTERVAL == 0) {
+            out.flush();
+        }
+        return rows;
+    }
+}
@@ -1,29 +1,180 @@
 package CSC540.WolfWR.services;
 
 import CSC540.WolfWR.models.DomainObject;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.env.Environment;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Base Service class with common methods that all services classes may use
+ *
+ * Besides save, which writes to the database right away, services offer saveDeferred for work
+ * that saves many entities in one transaction. Deferred saves are written in chunks of getBatchSize()
+ * entities, and whatever is left is written when the transaction commits.
+ *
  * @param <T> Generic Object type for the entity to store in the database (Model Objects)
  * @param <K> Generic Object type for the IDs / keys of the entity
  */
 public abstract class Services<T extends DomainObject, K> {
 
+    /** Default number of deferred saves written together, used when no size is set for the entity type */
+    private static final int DEFAULT_BATCH_SIZE = 50;
+
+    /** Persistence context shared with the repositories, used to control when changes are written */
+    @PersistenceContext
+    protected EntityManager em;
+
+    /** Program settings, such as the batch size for the entity type */
+    @Autowired
+    protected Environment env;
+
+    /** Number of entities saved through this service */
+    private final AtomicLong saveCount = new AtomicLong();
+
+    /** Number of times this service has written pending changes to the database */
+    private final AtomicLong flushCount = new AtomicLong();
+
+    /** Number of deferred saves written together, looked up once when the service is created */
+    private int batchSize = DEFAULT_BATCH_SIZE;
+
     /** Returns the repository connection between a database table and the program */
     protected abstract JpaRepository<T, K> getRepo();
 
     /** Save the entity to the repository */
     public void save(T entity) {
         getRepo().saveAndFlush(entity);
+        saveCount.incrementAndGet();
+        flushCount.incrementAndGet();
     }
 
-    /** Save each entity in the collection to the database */
+    /** Save each entity in the collection to the database, writing them in chunks and once more at the end */
     public void saveAll(Iterable<T> entities) {
-        getRepo().saveAllAndFlush(entities);
+        for (T entity : entities) {
+            saveDeferred(entity);
+        }
+        flush();
+    }
+
+    /**
+     * Save the entity without writing it to the database right away.
+     * Pending saves are written once getBatchSize() of them build up, and the rest when the transaction commits.
+     * Outside a transaction there is nothing to wait for, so the entity is saved right away
+     * @param entity the entity to save
+     */
+    public void saveDeferred(T entity) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            save(entity);
+            return;
+        }
+        getRepo().save(entity);
+        saveCount.incrementAndGet();
+        if (pending().incrementAndGet() >= getBatchSize()) {
+            flush();
+        }
+    }
+
+    /** Write all pending changes in the current transaction to the database */
+    public void flush() {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            em.flush();
+            flushCount.incrementAndGet();
+            pending().set(0);
+        }
+    }
+
+    /**
+     * Look up the number of deferred saves written together. Set per entity type with wolfwr.save.batch-size.[entity],
+     * such as wolfwr.save.batch-size.transaction, or for all types with wolfwr.save.batch-size
+     */
+    @PostConstruct
+    private void resolveBatchSize() {
+        Class<?> type = ResolvableType.forClass(Services.class, getClass()).getGeneric(0).resolve();
+        String name = type == null ? "" : type.getSimpleName().toLowerCase();
+        Integer all = env.getProperty("wolfwr.save.batch-size", Integer.class, DEFAULT_BATCH_SIZE);
+        batchSize = Math.max(1, env.getProperty("wolfwr.save.batch-size." + name, Integer.class, all));
+    }
+
+    /**
+     * Number of deferred saves written together
+     * @return the batch size for this service's entity type
+     */
+    protected int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Get the number of entities saved through this service since startup
+     * @return the number of saves
+     */
+    public long getSaveCount() {
+        return saveCount.get();
+    }
+
+    /**
+     * Get the number of times this service has written pending changes since startup
+     * @return the number of flushes
+     */
+    public long getFlushCount() {
+        return flushCount.get();
+    }
+
+    /**
+     * Get the number of deferred saves not yet written in the current transaction.
+     * The counter is kept with the transaction and removed when it completes
+     * @return the counter of pending saves
+     */
+    private AtomicLong pending() {
+        AtomicLong pending = (AtomicLong) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            AtomicLong created = new AtomicLong();
+            TransactionSynchronizationManager.bindResource(this, created);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(Services.this);
+                }
+            });
+            pending = created;
+        }
+        return pending;
+    }
+
+    /**
+     * Apply a change to an in-memory copy of a table after the current transaction commits,
+     * so rolled back changes never show up. If there is no transaction the change is applied right away
+     * @param change the change to apply
+     */
+    protected static void afterCommit(Runnable change) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            change.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                change.run();
+            }
+        });
+    }
+
+    /**
+     * Turn text typed by a user into a LIKE pattern that matches values starting with it.
+     * Wildcards in the text are escaped so they only match themselves
+     * @param prefix the text values should start with
+     * @return the pattern to pass to a LIKE query
+     */
+    protected static String prefixPattern(String prefix) {
+        return prefix.trim().replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
     }
 
     /** Get an entity from the database by its ID */
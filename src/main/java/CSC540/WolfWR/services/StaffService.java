@@ -4,12 +4,11 @@ import CSC540.WolfWR.models.Staff;
 import CSC540.WolfWR.models.Store;
 import CSC540.WolfWR.repositories.StaffRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.Collection;
-import java.util.Collections;
 import java.util.List;
 
 /**
@@ -27,6 +26,10 @@ public class StaffService  extends Services<Staff, Long> {
     @Autowired
     private StaffRepository repo;
 
+    /** Hands out unique ID numbers */
+    @Autowired
+    private IdService idServ;
+
     /** Returns the repository connection between the Staff table and program code */
     @Override
     protected JpaRepository<Staff, Long> getRepo() {
@@ -38,7 +41,7 @@ public class StaffService  extends Services<Staff, Long> {
      * @return the next ID number
      */
     public long generateID() {
-        return Collections.max( repo.getID() ) + 1;
+        return idServ.nextID("staff", repo::getMaxID);
     }
 
     /**
@@ -49,4 +52,19 @@ public class StaffService  extends Services<Staff, Long> {
     public List<Staff> findAllByStore(Store s) {
         return repo.findByStore(s.getStoreID());
     }
+
+    /**
+     * Get one page of the staff that work at a given store, in ID order
+     * @param s the store to look for
+     * @param search text the name or email must start with, or null for all staff
+     * @param afterID the highest staff ID on the previous page, 0 for the first page
+     * @param size the most staff to return
+     * @return up to size staff with IDs above afterID
+     */
+    public List<Staff> listPageByStore(Store s, String search, long afterID, int size) {
+        if (search == null || search.isBlank()) {
+            return repo.findPageByStore(s.getStoreID(), afterID, Limit.of(size));
+        }
+        return repo.searchPageByStore(s.getStoreID(), prefixPattern(search), afterID, Limit.of(size));
+    }
 }
@@ -7,10 +7,6 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.Collections;
-import java.util.List;
-import java.util.Random;
-
 /**
  * Store Service has methods to share the connection to the Store database table and to get the next ID number.
  * Any other methods that would interact with the Store table should go here.
@@ -24,6 +20,10 @@ public class StoreService  extends  Services<Store, Long> {
     @Autowired
     private StoreRepository repo;
 
+    /** Hands out unique ID numbers */
+    @Autowired
+    private IdService idServ;
+
     /** Returns the repository connection between the Store table and program code */
     @Override
     protected JpaRepository<Store, Long> getRepo() {
@@ -35,8 +35,7 @@ public class StoreService  extends  Services<Store, Long> {
      * @return the next ID number
      */
     public long generateID() {
-        List<Long> ids = repo.getIDs();
-        return Collections.max(ids) + 1;
+        return idServ.nextID("store", repo::getMaxID);
     }
 
 
@@ -0,0 +1,52 @@
+package CSC540.WolfWR.services;
+
+import CSC540.WolfWR.models.Supplier;
+import CSC540.WolfWR.repositories.DeliveryRepository;
+import CSC540.WolfWR.repositories.DeliveryRepository.SupplierBillLine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Supplier Billing Service works out what the company owes its suppliers for the merchandise they delivered.
+ *
+ * Bills are computed from the delivery ledger, so they do not change as the merchandise is sold or moved.
+ * Totals for each supplier and product are computed by the database with one grouped query, so a bill
+ * costs one row per product rather than one entity per delivery, and all suppliers can be billed at once.
+ *
+ * @author Brandon Jiang
+ */
+@Transactional(readOnly = true)
+@Component
+public class SupplierBillingService {
+
+    /** Repository connection between the delivery ledger and program code */
+    @Autowired
+    private DeliveryRepository deliveryRepo;
+
+    /**
+     * Get the bill for one supplier for the merchandise received in a time frame
+     * @param s the supplier to bill
+     * @param start the first day of the time frame (inclusive)
+     * @param end the last day of the time frame (inclusive)
+     * @return one line per product delivered, ordered by product name
+     */
+    public List<SupplierBillLine> supplierBill(Supplier s, LocalDate start, LocalDate end) {
+        DateRange range = DateRange.between(start, end);
+        return deliveryRepo.supplierBill(s.getSupplierID(), range.getStart(), range.getEnd());
+    }
+
+    /**
+     * Get the bills for every supplier for the merchandise received in a time frame
+     * @param start the first day of the time frame (inclusive)
+     * @param end the last day of the time frame (inclusive)
+     * @return one line per supplier and product delivered, ordered by supplier and then product name
+     */
+    public List<SupplierBillLine> allSuppliersBill(LocalDate start, LocalDate end) {
+        DateRange range = DateRange.between(start, end);
+        return deliveryRepo.allSuppliersBill(range.getStart(), range.getEnd());
+    }
+}
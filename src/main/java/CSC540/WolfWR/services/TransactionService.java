@@ -1,17 +1,31 @@
 package CSC540.WolfWR.services;
 
 import CSC540.WolfWR.models.*;
-import CSC540.WolfWR.repositories.MerchandiseRepository;
+import CSC540.WolfWR.repositories.DailySalesRollupRepository;
+import CSC540.WolfWR.repositories.MemberRepository;
+import CSC540.WolfWR.repositories.MemberRewardRepository;
+import CSC540.WolfWR.repositories.MemberRewardsLedgerRepository;
+import CSC540.WolfWR.repositories.RewardsRunRepository;
 import CSC540.WolfWR.repositories.StaffRepository;
 import CSC540.WolfWR.repositories.TransactionRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.sql.ResultSet;
 import java.time.LocalDate;
-import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 /**
  * Transaction Service computes and aggregates data regarding transactions, such as updating inventory,
@@ -27,14 +41,57 @@ public class TransactionService  extends  Services<Transaction, Long> {
     @Autowired
     private TransactionRepository repo;
 
-    /** Repository connection between the Merchandise table and program code */
+    /** Hands out unique ID numbers */
     @Autowired
-    private MerchandiseRepository merchRepo;
+    private IdService idServ;
+
+    /** Repository connection between the daily sales rollup table and program code */
+    @Autowired
+    private DailySalesRollupRepository rollupRepo;
+
+    /** Repository connection between the member rewards ledger and program code */
+    @Autowired
+    private MemberRewardsLedgerRepository ledgerRepo;
+
+    /** Repository connection between the year-end rewards table and program code */
+    @Autowired
+    private MemberRewardRepository rewardRepo;
+
+    /** Repository connection between the year-end rewards checkpoints and program code */
+    @Autowired
+    private RewardsRunRepository runRepo;
+
+    /** Repository connection between the Member table and program code */
+    @Autowired
+    private MemberRepository memberRepo;
+
+    /** Used to commit each chunk of the year-end rewards run separately */
+    @Autowired
+    private PlatformTransactionManager txManager;
+
+    /** Number of members whose rewards are computed and committed together in the year-end rewards run */
+    @Value("${wolfwr.rewards.run.chunk-size:1000}")
+    private int rewardsChunkSize;
+
+    /** Service that updates the stock of merchandise */
+    @Autowired
+    private MerchandiseService merchServ;
+
+    /** Prints the rows of sales reports as they are read */
+    private final SalesReportWriter reportWriter = new SalesReportWriter(System.out);
 
     /** Repository connection between the Staff table and program code */
     @Autowired
     private StaffRepository staffRepo;
 
+    /** Runs the one-time copy of items out of the old transaction join table */
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    /** Whether the old transaction join table is dropped once its items have been copied */
+    @Value("${wolfwr.migration.drop-legacy-items:false}")
+    private boolean dropLegacyItems;
+
     /** Returns the repository connection between the Transaction table and program code */
     @Override
     protected JpaRepository<Transaction, Long> getRepo() {
@@ -42,152 +99,307 @@ public class TransactionService  extends  Services<Transaction, Long> {
     }
 
     /**
-     * Get all transactions made by a member during a one-year rewards period
-     * @param m the member who made the transactions
-     * @param end the last day of the billing period (inclusive)
-     * @return list of all transactions made by the member during the billing period
+     * Get the total a member spent during a one-year rewards period.
+     * The period is the twelve calendar months ending with the month of the given day, and the total
+     * is read from the member rewards ledger, so it costs at most twelve rows however often the member shops
+     * @param m the member who made the purchases
+     * @param end any day in the last month of the rewards period
+     * @return the total price of all purchases made by the member during the rewards period
+     */
+    @Transactional(readOnly = true)
+    public double totalRewardsPurchases(Member m, LocalDate end) {
+        return ledgerRepo.totalSpent(m.getId(), MemberRewardsLedger.periodOf(end.minusMonths(11)),
+                MemberRewardsLedger.periodOf(end));
+    }
+
+    /**
+     * Get the percentage of their purchases a member earns back as rewards
+     * @param m the member earning rewards
+     * @return the rewards percentage, between 0 and 100
+     */
+    public double rewardsRate(Member m) {
+        MembershipLevel level = MembershipLevel.getLevel(m.getMembershipLevel());
+        return level == null ? 0 : rewardsRate(level);
+    }
+
+    /**
+     * Get the percentage of their purchases members of a level earn back as rewards.
+     * Rates are set per membership level with wolfwr.rewards.rate.[level], such as wolfwr.rewards.rate.platinum,
+     * and fall back to the level's default rate
+     * @param level the membership level
+     * @return the rewards percentage, between 0 and 100
      */
-    public List<Transaction> processRewards(Member m, LocalDate end) {
-        return this.repo.processRewards(m.getId(), end);
+    public double rewardsRate(MembershipLevel level) {
+        double rate = env.getProperty("wolfwr.rewards.rate." + level.name().toLowerCase(), Double.class,
+                level.getDefaultRewardRate());
+        return Math.max(0, Math.min(100, rate));
     }
 
     /**
-     * Given a transaction, update the inventory of all merchandise purchased
+     * Compute the rewards of every active member for the rewards year ending with the month of the given day,
+     * and save them to the member_reward table.
+     *
+     * Members are processed in ID order, a chunk at a time. Each chunk is totalled with one grouped query over
+     * the member rewards ledger and committed in its own transaction along with the checkpoint, so a run that
+     * stops part way through continues from the last finished chunk when started again.
+     * @param end any day in the last month of the rewards year
+     * @param restart true to compute every member again, even if a run for the year already finished
+     * @return the checkpoint of the run once it is complete
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public RewardsRun runAnnualRewards(LocalDate end, boolean restart) {
+        int period = MemberRewardsLedger.periodOf(end);
+        int firstPeriod = MemberRewardsLedger.periodOf(end.minusMonths(11));
+        double platinum = rewardsRate(MembershipLevel.PLATINUM);
+        double gold = rewardsRate(MembershipLevel.GOLD);
+        double silver = rewardsRate(MembershipLevel.SILVER);
+
+        TransactionTemplate chunkTx = new TransactionTemplate(txManager);
+        chunkTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        if (restart) {
+            chunkTx.executeWithoutResult(status -> runRepo.save(new RewardsRun(period)));
+        }
+        while (true) {
+            RewardsRun run = chunkTx.execute(status -> {
+                RewardsRun current = runRepo.findById(period).orElseGet(() -> new RewardsRun(period));
+                if (current.isCompleted()) {
+                    return current;
+                }
+                long after = current.getLastMemberID();
+                List<Long> ids = memberRepo.findActiveIDs(after, Limit.of(rewardsChunkSize));
+                if (ids.isEmpty()) {
+                    current.setCompleted(true);
+                } else {
+                    long upTo = ids.get(ids.size() - 1);
+                    // Clearing first makes a chunk safe to compute again if the last attempt was not checkpointed
+                    rewardRepo.clearRange(period, after, upTo);
+                    rewardRepo.computeRange(period, firstPeriod, after, upTo, platinum, gold, silver);
+                    current.setLastMemberID(upTo);
+                    current.setMembersProcessed(current.getMembersProcessed() + ids.size());
+                }
+                return runRepo.save(current);
+            });
+            if (run.isCompleted()) {
+                return run;
+            }
+        }
+    }
+
+    /**
+     * Total the rewards computed by the year-end rewards run
+     * @param end any day in the last month of the rewards year
+     * @return the total rewards earned by all members
+     */
+    @Transactional(readOnly = true)
+    public double totalAnnualRewards(LocalDate end) {
+        return rewardRepo.totalRewards(MemberRewardsLedger.periodOf(end));
+    }
+
+    /**
+     * Given a transaction, update the inventory of all merchandise purchased and save the transaction.
+     * All stock is taken in one batched update that only succeeds if enough stock remains,
+     * so the whole purchase fails if any item has sold out.
      * @param t the transaction with merchandise to update
+     * @throws IllegalStateException if there is not enough stock of an item in the cart
      */
     @Transactional
     public void completePurchase(Transaction t) {
         List<TransactionItem> cart = t.getProductList();
+        // Sorted so concurrent purchases lock rows in the same order
+        Map<Long, Integer> quantities = new TreeMap<>();
         for (TransactionItem ti: cart) {
-            Merchandise m = ti.getMerch();
-            // Decrement the quantity
-            m.setQuantity( m.getQuantity() - 1 );
-            merchRepo.save( m );
+            quantities.merge(ti.getProductID(), ti.getQuantity(), Integer::sum);
         }
 
-        repo.save(t);
+        // Write pending changes first so they cannot overwrite the decrement later.
+        // Merchandise already loaded keeps its old quantity in memory but is never written back from here
+        em.flush();
+        merchServ.decrementStock(quantities);
+        // Persisted directly, saving would merge it and read back every item and its merchandise first.
+        // Items point at references so persisting them never tries to insert merchandise loaded elsewhere
+        for (TransactionItem ti : cart) {
+            ti.setMerch(em.getReference(Merchandise.class, ti.getProductID()));
+        }
+        em.persist(t);
+        rollupRepo.recordSale(t.getStore().getStoreID(), t.getPurchaseDate(), t.getTotalPrice());
+        if (t.getMember() != null) {
+            ledgerRepo.recordPurchase(t.getMember().getId(), MemberRewardsLedger.periodOf(t.getPurchaseDate()),
+                    t.getTotalPrice());
+        }
     }
 
     /**
-     * Print out all transaction IDs and their totals made at a store in a given time frame.
+     * Copy purchased items out of the transaction_product_list join table used before items were read
+     * from the transaction_item table alone. Each listed item missing from transaction_item is added to
+     * the transaction that listed it, keeping the quantity of the item row it pointed at.
+     * Items already copied are skipped, so this can run every time the program starts.
+     * The join table is only dropped afterwards when wolfwr.migration.drop-legacy-items is set
+     * @return the number of items copied, 0 if there was no join table
+     */
+    public int migrateLegacyItems() {
+        Boolean legacy = jdbc.execute((ConnectionCallback<Boolean>) con -> {
+            try (ResultSet tables = con.getMetaData().getTables(con.getCatalog(), null, "transaction_product_list", null)) {
+                return tables.next();
+            }
+        });
+        if (!Boolean.TRUE.equals(legacy)) {
+            return 0;
+        }
+        int copied = jdbc.update("INSERT INTO transaction_item (transactionid, productid, quantity) " +
+                "SELECT l.transaction_transactionid, l.product_list_productid, MAX(COALESCE(i.quantity, 1)) " +
+                "FROM transaction_product_list l LEFT JOIN transaction_item i " +
+                "ON i.transactionid = l.product_list_transactionid AND i.productid = l.product_list_productid " +
+                "WHERE NOT EXISTS (SELECT 1 FROM transaction_item e " +
+                "WHERE e.transactionid = l.transaction_transactionid AND e.productid = l.product_list_productid) " +
+                "GROUP BY l.transaction_transactionid, l.product_list_productid");
+        if (dropLegacyItems) {
+            jdbc.execute("DROP TABLE transaction_product_list");
+        }
+        return copied;
+    }
+
+    /**
+     * Rebuild the daily sales rollup from the full transaction history.
+     * Needed after transactions are saved without going through completePurchase, such as when loading data
+     */
+    public void rebuildDailySalesRollup() {
+        // Deferred saves have to reach the database before the rollup is computed from it
+        flush();
+        rollupRepo.clear();
+        rollupRepo.rebuildFromTransactions();
+    }
+
+    /**
+     * Rebuild the member rewards ledger from the full transaction history.
+     * Needed after transactions are saved without going through completePurchase, such as when loading data
+     */
+    public void rebuildRewardsLedger() {
+        // Deferred saves have to reach the database before the ledger is computed from it
+        flush();
+        ledgerRepo.clear();
+        ledgerRepo.rebuildFromTransactions();
+    }
+
+    /**
+     * Print a sales report for a store in a given time frame.
      * A summary stating the total number of transactions and the total price of all transactions
-     * during that time is printed at the end
+     * during that time is printed at the end. The count and total are computed by the database,
+     * and individual rows are streamed to the output as they are read.
      * @param start the first day of the time frame (inclusive)
      * @param end the last day of the time frame (inclusive)
      * @param store the store the report is generated for
+     * @param detail what to print before the summary: "summary" for nothing, "daily" for totals per day,
+     *               or "itemized" for every transaction ID and its total
      */
-    public void generateBoundStoreSalesReport(LocalDate start, LocalDate end, Store store) {
-        List<Transaction> trans = repo.generateBoundStoreSalesReport(start, end, store.getStoreID());
-        double total = 0;
-        int count = 0;
-        System.out.println();
-        for (Transaction t: trans) {
-            System.out.printf("Trans ID: %4d. Total: $%4.2f\n", t.getTransactionID(), t.getTotalPrice());
-            total += t.getTotalPrice();
-            count++;
-        }
-        System.out.println();
+    @Transactional(readOnly = true)
+    public void generateBoundStoreSalesReport(LocalDate start, LocalDate end, Store store, String detail) {
+        TransactionRepository.SalesSummary summary = writeSalesReport(DateRange.between(start, end), store, detail, false);
         System.out.printf("Between %s and %s, store %4d has completed %d transactions for a total of $%4.2f in sales.\n\n",
-                start.toString(), end.toString(), store.getStoreID(), count, total);
+                start.toString(), end.toString(), store.getStoreID(), summary.getTransactionCount(), summary.getRevenue());
     }
 
     /**
-     * Print out all transaction IDs and their totals made company-wide in a given time frame.
+     * Print a sales report for the whole company in a given time frame.
      * A summary stating the total number of transactions and the total price of all transactions
-     * during that time is printed at the end
+     * during that time is printed at the end. The count and total are computed by the database,
+     * and individual rows are streamed to the output as they are read.
      * @param start the first day of the time frame (inclusive)
      * @param end the last day of the time frame (inclusive)
+     * @param detail what to print before the summary: "summary" for nothing, "daily" for totals per store and day,
+     *               or "itemized" for every transaction ID and its total
      */
-    public void generateBoundSalesReport(LocalDate start, LocalDate end) {
-        List<Transaction> trans = repo.generateBoundSalesReport(start, end);
-        double total = 0;
-        int count = 0;
-        System.out.println();
-        for (Transaction t: trans) {
-            System.out.printf("Trans ID: %4d. Total: $%4.2f\n", t.getTransactionID(), t.getTotalPrice());
-            total += t.getTotalPrice();
-            count++;
-        }
-        System.out.println();
+    @Transactional(readOnly = true)
+    public void generateBoundSalesReport(LocalDate start, LocalDate end, String detail) {
+        TransactionRepository.SalesSummary summary = writeSalesReport(DateRange.between(start, end), null, detail, false);
         System.out.printf("Between %s and %s, %d transactions were completed company-wide for a total of $%4.2f in sales.\n\n",
-                start.toString(), end.toString(), count, total);
+                start.toString(), end.toString(), summary.getTransactionCount(), summary.getRevenue());
     }
 
     /**
      * Create a sales report for a store in one of three fixed timeframes (a day, a month, or a year).
-     * Prints all transaction IDs with their totals
      * A summary with total number of sales and total sales is printed at the end
      * @param timeframe a String spelling out the timeframe to look at
      * @param start the first day of the timeframe (inclusive)
      * @param store the store to generate the report for
+     * @param detail what to print before the summary ("summary", "daily", or "itemized")
      */
-    public void generateStoreSalesReport(String timeframe, LocalDate start, Store store) {
-        List<Transaction> trans = null;
-        switch (timeframe) {
-            case "day":
-                trans = repo.generateDayStoreReport(start, store.getStoreID());
-                break;
-            case "month":
-                trans = repo.generateMonthStoreReport(start, store.getStoreID());
-                break;
-            case "year":
-                trans = repo.generateYearStoreReport(start, store.getStoreID());
-                break;
-            default:
-                System.out.println("Invalid Input\n");
-                return;
+    @Transactional(readOnly = true)
+    public void generateStoreSalesReport(String timeframe, LocalDate start, Store store, String detail) {
+        DateRange range = DateRange.of(timeframe, start);
+        if (range == null) {
+            System.out.println("Invalid Input\n");
+            return;
         }
 
-        double total = 0;
-        int count = 0;
-        System.out.println();
-        for (Transaction t: trans) {
-            System.out.printf("Trans ID: %4d. Total: $%4.2f\n", t.getTransactionID(), t.getTotalPrice());
-            total += t.getTotalPrice();
-            count++;
-        }
-        System.out.println();
+        TransactionRepository.SalesSummary summary = writeSalesReport(range, store, detail, true);
         System.out.printf("In a 1 %s timespan starting from %s, store %4d has completed %d transactions for a total of $%4.2f in sales.\n\n",
-                timeframe, start.toString(), store.getStoreID(), count, total);
+                timeframe, start.toString(), store.getStoreID(), summary.getTransactionCount(), summary.getRevenue());
     }
 
     /**
      * Create a sales report company-wide in one of three fixed timeframes (a day, a month, or a year).
-     * Prints all transaction IDs with their totals
-     * A summary with total number of sales and total sales is printed at the end
+     * A summary with total number of sales and total sales is printed at the end.
+     * Totals come from the daily sales rollup, so the cost depends on the number of days rather than transactions
      * @param timeframe a String spelling out the timeframe to look at
      * @param start the first day of the timeframe (inclusive)
+     * @param detail what to print before the summary ("summary", "daily", or "itemized")
      */
-    public void generateGlobalSalesReport(String timeframe, LocalDate start) {
-        List<Transaction> trans = null;
-        switch (timeframe) {
-            case "day":
-                trans = repo.generateDayReport(start);
-                break;
-            case "month":
-                trans = repo.generateMonthReport(start);
+    @Transactional(readOnly = true)
+    public void generateGlobalSalesReport(String timeframe, LocalDate start, String detail) {
+        DateRange range = DateRange.of(timeframe, start);
+        if (range == null) {
+            System.out.println("Invalid Input\n");
+            return;
+        }
+
+        TransactionRepository.SalesSummary summary = writeSalesReport(range, null, detail, true);
+        System.out.printf("In a 1 %s timespan starting from %s, %4d transactions have been completed company-wide for a total of $%4.2f in sales.\n\n",
+                timeframe, start.toString(), summary.getTransactionCount(), summary.getRevenue());
+    }
+
+    /**
+     * Print the requested detail rows of a sales report and compute its totals.
+     * Every report runs the same range queries, differing only in whether they are limited to one store
+     * and whether totals come from the daily sales rollup or the transactions themselves
+     * @param range the days the report covers
+     * @param store the store the report is for, or null for the whole company
+     * @param detail what to print: "summary" for nothing, "daily" for totals per day, or "itemized" for every transaction
+     * @param fromRollup true to take the totals and daily rows from the daily sales rollup
+     * @return the number of transactions and their total
+     */
+    private TransactionRepository.SalesSummary writeSalesReport(DateRange range, Store store, String detail, boolean fromRollup) {
+        LocalDate start = range.getStart();
+        LocalDate end = range.getEnd();
+        Long storeID = store == null ? null : store.getStoreID();
+
+        System.out.println();
+        switch (detail) {
+            case "daily":
+                if (fromRollup) {
+                    reportWriter.writeDailySales((storeID == null ? rollupRepo.findSalesByStoreAndDay(start, end)
+                            : rollupRepo.findStoreSalesByDay(start, end, storeID)).stream());
+                } else {
+                    reportWriter.writeDailySales(storeID == null ? repo.summarizeSalesByStoreAndDay(start, end)
+                            : repo.summarizeStoreSalesByDay(start, end, storeID));
+                }
                 break;
-            case "year":
-                trans = repo.generateYearReport(start);
+            case "itemized":
+                reportWriter.writeSalesLines(storeID == null ? repo.listSales(start, end)
+                        : repo.listStoreSales(start, end, storeID), storeID == null);
                 break;
             default:
-                System.out.println("Invalid Input\n");
-                return;
+                break;
         }
 
-        double total = 0;
-        int count = 0;
-        System.out.println();
-        for (Transaction t: trans) {
-            System.out.printf("Trans ID: %4d. Store: %4d Total: $%4.2f\n",
-                    t.getTransactionID(), t.getStore().getStoreID(), t.getTotalPrice());
-
-            total += t.getTotalPrice();
-            count++;
+        TransactionRepository.SalesSummary summary;
+        if (fromRollup) {
+            summary = storeID == null ? rollupRepo.summarizeSales(start, end) : rollupRepo.summarizeStoreSales(start, end, storeID);
+        } else {
+            summary = storeID == null ? repo.summarizeSales(start, end) : repo.summarizeStoreSales(start, end, storeID);
         }
         System.out.println();
-        System.out.printf("In a 1 %s timespan starting from %s, %4d transactions have been completed company-wide for a total of $%4.2f in sales.\n\n",
-                timeframe, start.toString(), count, total);
+        return summary;
     }
 
     /**
@@ -210,10 +422,9 @@ public class TransactionService  extends  Services<Transaction, Long> {
 
     /**
      * Create unique IDs for transactions
-     * @return one more than the current highest ID number
+     * @return a transaction ID that has not been used before
      */
     public long generateID() {
-        List<Long> ids = repo.getIDs();
-        return Collections.max(ids) + 1;
+        return idServ.nextID("transaction", repo::getMaxID);
     }
 }
@@ -2,11 +2,13 @@ package CSC540.WolfWR.views;
 
 import CSC540.WolfWR.WolfWRApp;
 import CSC540.WolfWR.models.*;
+import CSC540.WolfWR.repositories.DeliveryRepository.SupplierBillLine;
 import CSC540.WolfWR.services.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.time.LocalDate;
+import java.time.YearMonth;
 import java.util.List;
 import java.util.Scanner;
 
@@ -22,13 +24,13 @@ public class BillingStaffView {
     @Autowired
     private TransactionService transServ;
 
-    /** Service that aids in generating bills to pay to suppliers */
+    /** Finds members by phone number, email, or from the member list */
     @Autowired
-    private MerchandiseService merchServ;
+    private MemberSelector memberSelector;
 
-    /** Service to find members by ID number */
+    /** Service that totals what is owed to suppliers */
     @Autowired
-    private MemberService memberServ;
+    private SupplierBillingService billingServ;
 
     /** Service to help find supplier by ID */
     @Autowired
@@ -56,6 +58,7 @@ public class BillingStaffView {
             System.out.println("[2] Calculate Membership Rewards");
             System.out.println("[3] Generate Sales Report (day, month, year)");
             System.out.println("[4] Generate Sales Report (start - end)");
+            System.out.println("[5] Calculate Year-End Rewards for All Members");
 
             System.out.print("> ");
 
@@ -79,6 +82,9 @@ public class BillingStaffView {
                 case "4":
                     generateBoundStoreSalesReport(scan);
                     break;
+                case "5":
+                    runAnnualRewards(scan);
+                    break;
                 default:
                     System.out.println("\nUnknown action\n");
             }
@@ -135,7 +141,11 @@ public class BillingStaffView {
             return;
         }
 
-        transServ.generateBoundStoreSalesReport(start, end, current);
+        String detail = SalesReportWriter.selectDetail(scan);
+        if (detail == null) {
+            return;
+        }
+        transServ.generateBoundStoreSalesReport(start, end, current, detail);
     }
 
     /**
@@ -194,27 +204,34 @@ public class BillingStaffView {
             System.out.println("Unable to parse start date\n");
             return;
         }
-        transServ.generateStoreSalesReport(timeframe, start, current);
+        String detail = SalesReportWriter.selectDetail(scan);
+        if (detail == null) {
+            return;
+        }
+        transServ.generateStoreSalesReport(timeframe, start, current, detail);
     }
 
     /**
      * Logic for creating a bill to a supplier
-     * User will be prompted to select a supplier and a timeframe to search for deliveries
+     * User will be prompted to select a supplier, or all suppliers, and a timeframe to search for deliveries
      * @param scan scanner to allow user input from the keyboard
      */
     public void generateBill(Scanner scan) {
 
-        // TODO: Generate list of suppliers
         List<Supplier> suppliers = supplierServ.findAll();
         System.out.println("\nChoose a supplier to pay:\n> ");
+        System.out.println("[a] All Suppliers");
         displaySuppliers(suppliers);
 
         Supplier s = null;
-        try {
-            s = suppliers.get( Integer.parseInt(scan.nextLine().trim()) );
-        } catch (Exception e) {
-            System.out.println("Invalid Supplier\n");
-            return;
+        String input = scan.nextLine().trim();
+        if (!input.equalsIgnoreCase("a")) {
+            try {
+                s = suppliers.get( Integer.parseInt(input) );
+            } catch (Exception e) {
+                System.out.println("Invalid Supplier\n");
+                return;
+            }
         }
 
         System.out.println("Choose a time frame.");
@@ -231,35 +248,32 @@ public class BillingStaffView {
             return;
         }
 
-        List<Merchandise> deliveries = merchServ.deliveriesByTimeAndSupplier(start, end, s);
+        List<SupplierBillLine> bill = s == null ? billingServ.allSuppliersBill(start, end)
+                : billingServ.supplierBill(s, start, end);
         System.out.println();
-        double grandTotal = showDeliveries(deliveries);
-        System.out.printf("Pay %s $%.2f\n\n", s.getSupplierName(), grandTotal);
-
+        if (bill.isEmpty()) {
+            System.out.println("No deliveries found\n");
+            return;
+        }
+        showBill(bill);
     }
 
     /**
      * Logic for calculating the rewards earned by a member during a rewards period
-     * User will be prompted to select a member and the last day of the rewards period.
-     * Default timeframe is 1 year.
+     * User will be prompted to select a member and the last month of the rewards period.
+     * The rewards period is the 12 months ending with that month, and the rate comes from the member's level.
      * @param scan scanner to allow user input from the keyboard
      */
     public void tabulateRewards(Scanner scan) {
 
         // Generate list of members and select
-        List<Member> members = memberServ.findAll();
-
         System.out.println("\nChoose a member:");
-        displayMembers(members);
-        Member m = null;
-        try {
-            int idx = Integer.parseInt( scan.nextLine().trim() );
-            m = members.get(idx - 1);
-        } catch (Exception e) {
+        Member m = memberSelector.select(scan, false);
+        if (m == null) {
             System.out.println("Invalid Member\n");
             return;
         }
-        System.out.print("Input the *END* of the rewards period as mm-dd-yyyy\n> ");
+        System.out.print("Input any day in the *LAST MONTH* of the rewards period as mm-dd-yyyy\n> ");
         LocalDate end = null;
 
         try {
@@ -269,45 +283,65 @@ public class BillingStaffView {
             return;
         }
 
-        List<Transaction> transactions = transServ.processRewards(m, end);
-        double total = tabulateTotalPurchases(transactions);
+        double total = transServ.totalRewardsPurchases(m, end);
+        double percent = transServ.rewardsRate(m);
 
-        System.out.print("""
-                
-                Input rewards percentage as a whole number between 0 and 100.
-                Example: Platinum members get 2%. Input '2'.
-                >\s""");
+        System.out.printf("\nMember %s %s (%s) purchased $%.2f from %s to %s.\nThey earned %.2f in rewards at %.2f%%.\n\n",
+                m.getFirstName(), m.getLastName(), m.getMembershipLevel(), total,
+                YearMonth.from(end).minusMonths(11), YearMonth.from(end), total * 0.01 * percent, percent);
+    }
+
+    /**
+     * Logic for computing the rewards of every active member at the end of a rewards year.
+     * User will be prompted for the last month of the rewards year. Results are saved to the database,
+     * and a run that was interrupted continues where it stopped
+     * @param scan scanner to allow user input from the keyboard
+     */
+    public void runAnnualRewards(Scanner scan) {
+        System.out.print("Input any day in the *LAST MONTH* of the rewards year as mm-dd-yyyy\n> ");
+        LocalDate end = null;
 
-        int percent = 0;
         try {
-             percent = Integer.parseInt(scan.nextLine().trim());
-             if (percent < 0 || percent > 100) {
-                System.out.println("Invalid rewards rate.\n");
-                return;
-             }
+            end = LocalDate.parse(scan.nextLine().trim(), WolfWRApp.timeFormat);
         } catch (Exception e) {
-            System.out.println("Invalid Percentage\n");
+            System.out.println("Invalid Date.\n");
             return;
         }
 
-        System.out.printf("\nMember %s %s purchased $%.2f this year.\nThey earned %.2f in rewards.\n\n",
-                m.getFirstName(), m.getLastName(), total, total * 0.01 * percent);
+        System.out.print("Recompute members already finished for this year? (y/n)\n> ");
+        boolean restart = scan.nextLine().trim().equalsIgnoreCase("y");
+
+        RewardsRun run = transServ.runAnnualRewards(end, restart);
+        System.out.printf("\nRewards for %s to %s computed for %d members.\nTotal rewards earned: $%.2f\n\n",
+                YearMonth.from(end).minusMonths(11), YearMonth.from(end), run.getMembersProcessed(),
+                transServ.totalAnnualRewards(end));
     }
 
     /**
-     * Helper method to display all merchandise in a list
-     * @param deliveries list of merchandise to display
-     * @return the grand total the store needs to pay the supplier for the merchandise shown
+     * Helper method to display a bill one product at a time, with the amount to pay each supplier after its products
+     * @param bill the lines of the bill, grouped by supplier
      */
-    public double showDeliveries(List<Merchandise> deliveries) {
+    private void showBill(List<SupplierBillLine> bill) {
+        double supplierTotal = 0;
         double grandTotal = 0;
-        for (Merchandise m: deliveries) {
-            double total = m.getBuyPrice() * m.getQuantity();
-            System.out.printf("Product %20s, Buy Price%4.2f, Quantity: %4d, Total: %4.2f\n",
-                    m.getProductName(), m.getBuyPrice(), m.getQuantity(), total);
-            grandTotal += total;
+        int suppliersBilled = 0;
+        for (int i = 0; i < bill.size(); i++) {
+            SupplierBillLine line = bill.get(i);
+            System.out.printf("Product %20s, Deliveries: %4d, Quantity: %4d, Total: %4.2f\n",
+                    line.getProductName(), line.getDeliveries(), line.getQuantity(), line.getTotal());
+            supplierTotal += line.getTotal();
+
+            boolean lastOfSupplier = i + 1 == bill.size() || !bill.get(i + 1).getSupplierID().equals(line.getSupplierID());
+            if (lastOfSupplier) {
+                System.out.printf("Pay %s $%.2f\n\n", line.getSupplierName(), supplierTotal);
+                grandTotal += supplierTotal;
+                supplierTotal = 0;
+                suppliersBilled++;
+            }
+        }
+        if (suppliersBilled > 1) {
+            System.out.printf("Pay %d suppliers $%.2f in total\n\n", suppliersBilled, grandTotal);
         }
-        return grandTotal;
     }
 
     /**
@@ -321,31 +355,6 @@ public class BillingStaffView {
         System.out.print("> ");
     }
 
-    /**
-     * Helper method to sum up the totals of all transactions in the list
-     * @param trans list of transaction to tabulate
-     * @return the total of all the transactions
-     */
-    private double tabulateTotalPurchases(List<Transaction> trans) {
-        double total = 0;
-        for (Transaction t: trans) {
-            total += t.getTotalPrice();
-        }
-        return total;
-    }
-
-    /**
-     * Helper method to display all members in a list and assigns each one a value equal to 1 + their index in the list
-     * @param members list of members to display
-     */
-    private void displayMembers(List<Member> members) {
-        for (int i = 0; i < members.size(); i++) {
-            Member m = members.get(i);
-            System.out.printf("[%d] %10s %10s. %s Member\n", i + 1, m.getFirstName(), m.getLastName(), m.getMembershipLevel());
-        }
-        System.out.print("> ");
-    }
-
     /**
      * Helper method to list all store locations and assigns each one a value equal to 1 + its index in the list
      * @param locs list of stores to display
@@ -23,6 +23,22 @@ public class GlobalView {
     @Autowired
     private TransactionService transServ;
 
+    /** Records existing inventory with no delivery as deliveries from its supplier */
+    @Autowired
+    private DeliveryService deliveryServ;
+
+    /** Gives merchandise stocked before the product catalog existed its SKU */
+    @Autowired
+    private ProductService productServ;
+
+    /** Forgets the lots checkout knows about once merchandise is given its SKU */
+    @Autowired
+    private MerchandiseService merchServ;
+
+    /** Finds merchandise about to expire and marks it down */
+    @Autowired
+    private ExpirySweepService expiryServ;
+
     /** Service with methods for interacting with the Store table */
     @Autowired
     private StoreService storeServ;
@@ -43,6 +59,10 @@ public class GlobalView {
             System.out.println("[1] Generate Global Sales Report (day, month, year)");
             System.out.println("[2] Generate Global Sales Report (start - end)");
             System.out.println("[3] Add New Location");
+            System.out.println("[4] Rebuild Daily Sales and Rewards Totals");
+            System.out.println("[5] Record Existing Inventory as Supplier Deliveries");
+            System.out.println("[6] Add Existing Inventory to the Product Catalog");
+            System.out.println("[7] Run Expiry Sweep Now");
             System.out.print("> ");
 
             input = scan.nextLine().trim();
@@ -61,6 +81,27 @@ public class GlobalView {
                 case "3":
                     addNewLocation(scan);
                     break;
+                case "4":
+                    transServ.rebuildDailySalesRollup();
+                    transServ.rebuildRewardsLedger();
+                    System.out.println("Daily sales and member rewards totals rebuilt from transaction history.\n");
+                    break;
+                case "5":
+                    int recorded = deliveryServ.backfillFromMerchandise();
+                    System.out.println(recorded > 0 ? "Recorded " + recorded + " deliveries from existing inventory.\n"
+                            : "Every merchandise entry in stock already has a delivery recorded, nothing to do.\n");
+                    break;
+                case "6":
+                    int linked = productServ.linkMerchandise();
+                    if (linked > 0) {
+                        // Entries without a SKU are left out of the lots, so they are loaded again to include them
+                        merchServ.clearLotIndex();
+                    }
+                    System.out.println("Gave " + linked + " merchandise entries their product SKU.\n");
+                    break;
+                case "7":
+                    runExpirySweep(scan);
+                    break;
                 default:
                     System.out.println("\nUnknown action\n");
             }
@@ -68,6 +109,49 @@ public class GlobalView {
 
     }
 
+    /**
+     * Run the expiry sweep now and list the merchandise expiring soon at each store,
+     * and the expired merchandise still in stock to be pulled from the shelves.
+     * User will be prompted for the markdown percentage, or can keep the configured one
+     * @param scan scanner to allow user input from the keyboard
+     */
+    public void runExpirySweep(Scanner scan) {
+        System.out.println("Enter the percentage to mark down expiring merchandise (0 - 100), 0 to only list it,");
+        System.out.print("or press Enter for the configured markdown\n> ");
+        String input = scan.nextLine().trim();
+        ExpirySweepService.SweepResult result;
+        try {
+            if (input.isEmpty()) {
+                result = expiryServ.sweep(LocalDate.now());
+            } else {
+                int percent = Integer.parseInt(input);
+                if (percent < 0 || percent > 100) {
+                    System.out.println("Invalid Percentage\n");
+                    return;
+                }
+                result = expiryServ.sweep(LocalDate.now(), percent);
+            }
+        } catch (NumberFormatException e) {
+            System.out.println("Invalid Percentage\n");
+            return;
+        }
+
+        if (result.getExpiring().isEmpty() && result.getExpired().isEmpty()) {
+            System.out.printf("No merchandise in stock expires by %s.\n\n", result.getUpTo());
+            return;
+        }
+        result.getExpired().forEach((storeID, merch) -> {
+            System.out.printf("Store %d, already expired, pull from the shelves:\n", storeID);
+            merch.forEach(System.out::print);
+        });
+        result.getExpiring().forEach((storeID, merch) -> {
+            System.out.printf("Store %d, expiring by %s:\n", storeID, result.getUpTo());
+            merch.forEach(System.out::print);
+        });
+        System.out.printf("Found %d expired merchandise entries still in stock and %d expiring soon, created %d markdowns.\n\n",
+                result.getExpiredFound(), result.getFound(), result.getMarkdowns());
+    }
+
     /**
      * Create a report of all transactions within one of three fixed lengths of time (day, month, year).
      * User will be prompted for a timeframe and the first day of the timeframe
@@ -110,7 +194,11 @@ public class GlobalView {
             System.out.println("Unable to parse start date\n");
             return;
         }
-        transServ.generateGlobalSalesReport(timeframe, start);
+        String detail = SalesReportWriter.selectDetail(scan);
+        if (detail == null) {
+            return;
+        }
+        transServ.generateGlobalSalesReport(timeframe, start, detail);
     }
 
     /**
@@ -148,7 +236,11 @@ public class GlobalView {
             return;
         }
 
-        transServ.generateBoundSalesReport(start, end);
+        String detail = SalesReportWriter.selectDetail(scan);
+        if (detail == null) {
+            return;
+        }
+        transServ.generateBoundSalesReport(start, end, detail);
     }
 
     /**
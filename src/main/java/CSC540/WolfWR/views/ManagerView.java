@@ -41,9 +41,13 @@ public class ManagerView {
     @Autowired
     private GlobalView global;
 
-    /** Finds all members */
+    /** Lists long tables one page at a time */
     @Autowired
-    private MemberService memberServ;
+    private PagedPicker picker;
+
+    /** Finds members by phone number, email, or from the member list */
+    @Autowired
+    private MemberSelector memberSelector;
 
     /** Service contains methods for interacting with the staff table */
     @Autowired
@@ -143,7 +147,7 @@ public class ManagerView {
         for (int i = 0; i < merch.size(); i++) {
             m = merch.get(i);
             System.out.printf("[%2d] Store: %4d. Buy Price: %3.2f. Market Price: %3.2f. Product: %s\n",
-                    i + 1, m.getStore().getStoreID(), m.getBuyPrice(), m.getMarketPrice(), m.getProductName());
+                    i + 1, store.getStoreID(), m.getBuyPrice(), m.getMarketPrice(), m.getProductName());
         }
         System.out.print("> ");
         String input = scan.nextLine().trim();
@@ -281,25 +285,16 @@ public class ManagerView {
         if (store == null) {
             return;
         }
-        List<Staff> staff = staffService.findAllByStore(store);
-
         System.out.println("Select a staff member:");
-        System.out.print("> ");
-        Staff s = null;
-        for (int i = 0; i < staff.size(); i++) {
-            s = staff.get(i);
-            System.out.printf("[%d] %s \n", i + 1, s.getName());
-        }
-
-        String input = scan.nextLine().trim();
-        try {
-            int idx = Integer.parseInt(input) - 1;
-            s = staff.get(idx);
-            staffService.delete(s);
-            System.out.println("Staff member removed\n");
-        } catch ( Exception e ) {
+        Staff s = picker.pick(scan,
+                (search, after, size) -> staffService.listPageByStore(store, search, after, size),
+                Staff::getStaffId, Staff::getName);
+        if (s == null) {
             System.out.println("Invalid staff member\n");
+            return;
         }
+        staffService.delete(s);
+        System.out.println("Staff member removed\n");
     }
 
     /**
@@ -332,22 +327,7 @@ public class ManagerView {
      * @return member selected
      */
     public Member selectMember(Scanner scan) {
-        List<Member> members = memberServ.findAll();
-        for (int i = 0; i < members.size(); i++) {
-            Member m = members.get(i);
-            System.out.printf("[%d] %10s %10s. %s Member\n", i + 1, m.getFirstName(), m.getLastName(), m.getMembershipLevel());
-        }
-        System.out.print("> ");
-
-        String input = scan.nextLine().trim();
-        Member m = null;
-        try {
-            m = members.get( Integer.parseInt(input) );
-            return m;
-        } catch (Exception e) {
-            System.out.println("Invalid Selection");
-            return null;
-        }
+        return memberSelector.select(scan, false);
     }
 
     /**
@@ -0,0 +1,52 @@
+package CSC540.WolfWR.views;
+
+import CSC540.WolfWR.models.Member;
+import CSC540.WolfWR.services.MemberService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Scanner;
+
+/**
+ * Member Selector finds the member a view is working with.
+ * Members are looked up directly by phone number or email, and the paged member list
+ * is only shown when neither is entered.
+ *
+ * @author Brandon Jiang
+ */
+@Component
+public class MemberSelector {
+
+    /** Finds members by phone number, email, or page */
+    @Autowired
+    private MemberService memberServ;
+
+    /** Lists members one page at a time */
+    @Autowired
+    private PagedPicker picker;
+
+    /**
+     * Prompt for a phone number or email and find the member, or let the user pick from the member list
+     * @param scan scanner to allow user input from the keyboard
+     * @param activeOnly true to only accept members with active memberships
+     * @return the member found, or null if there was no match or the user cancelled
+     */
+    public Member select(Scanner scan, boolean activeOnly) {
+        System.out.print("Enter a phone number or email, or press Enter to choose from the member list\n> ");
+        String contact = scan.nextLine().trim();
+        if (contact.isEmpty()) {
+            return picker.pick(scan,
+                    (search, after, size) -> memberServ.listPage(search, after, size, activeOnly),
+                    Member::getId, m -> String.format("%10s %10s. %s Member",
+                            m.getFirstName(), m.getLastName(), m.getMembershipLevel()));
+        }
+
+        Member m = memberServ.findByPhoneOrEmail(contact);
+        if (m == null || (activeOnly && !m.isActive())) {
+            System.out.println("No member found");
+            return null;
+        }
+        System.out.printf("Found %s %s. %s Member\n", m.getFirstName(), m.getLastName(), m.getMembershipLevel());
+        return m;
+    }
+}
@@ -0,0 +1,137 @@
+package CSC540.WolfWR.views;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Scanner;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * Paged Picker lists long tables one page at a time so views never hold a whole table in memory.
+ * Users can move between pages, search, and select an entry by its number on the current page.
+ * Pages are fetched by ID (everything after the last ID on the previous page), so each page costs the same.
+ *
+ * @author Brandon Jiang
+ */
+@Component
+public class PagedPicker {
+
+    /** Number of entries shown on each page */
+    @Value("${wolfwr.list.page-size:20}")
+    private int pageSize;
+
+    /**
+     * PageSource fetches one page of entries
+     * @param <T> the type of entry listed
+     */
+    @FunctionalInterface
+    public interface PageSource<T> {
+
+        /**
+         * Fetch one page of entries in ID order
+         * @param search text entries must start with, or null for all entries
+         * @param afterID the highest ID on the previous page, 0 for the first page
+         * @param size the most entries to return
+         * @return up to size entries with IDs above afterID
+         */
+        List<T> page(String search, long afterID, int size);
+    }
+
+    /**
+     * Let the user select an entry, moving between pages and searching as needed
+     * @param scan scanner to allow user input from the keyboard
+     * @param source fetches each page
+     * @param idOf gets the ID the entries are ordered by
+     * @param format turns an entry into the line printed for it
+     * @param <T> the type of entry listed
+     * @return the entry selected, or null if the user cancelled or made an invalid selection
+     */
+    public <T> T pick(Scanner scan, PageSource<T> source, ToLongFunction<T> idOf, Function<T, String> format) {
+        return browse(scan, source, idOf, format, true);
+    }
+
+    /**
+     * Print entries one page at a time until the user is done
+     * @param scan scanner to allow user input from the keyboard
+     * @param source fetches each page
+     * @param idOf gets the ID the entries are ordered by
+     * @param format turns an entry into the line printed for it
+     * @param <T> the type of entry listed
+     */
+    public <T> void list(Scanner scan, PageSource<T> source, ToLongFunction<T> idOf, Function<T, String> format) {
+        browse(scan, source, idOf, format, false);
+    }
+
+    /**
+     * Main loop shared by pick and list
+     * @param scan scanner to allow user input from the keyboard
+     * @param source fetches each page
+     * @param idOf gets the ID the entries are ordered by
+     * @param format turns an entry into the line printed for it
+     * @param selectable true if the user is choosing an entry
+     * @param <T> the type of entry listed
+     * @return the entry selected, or null
+     */
+    private <T> T browse(Scanner scan, PageSource<T> source, ToLongFunction<T> idOf, Function<T, String> format,
+                         boolean selectable) {
+        String search = null;
+        long after = 0;
+        // The afterID of each earlier page, so users can go back
+        Deque<Long> previous = new ArrayDeque<>();
+
+        while (true) {
+            List<T> page = source.page(search, after, pageSize);
+            if (page.isEmpty()) {
+                System.out.println("No entries found");
+            }
+            for (int i = 0; i < page.size(); i++) {
+                System.out.printf("[%d] %s\n", i + 1, format.apply(page.get(i)));
+            }
+            System.out.println();
+            if (page.size() == pageSize) {
+                System.out.println("[n] Next Page");
+            }
+            if (!previous.isEmpty()) {
+                System.out.println("[p] Previous Page");
+            }
+            System.out.println("[s] Search");
+            System.out.println(selectable ? "[c] Cancel" : "Press Enter to return");
+            System.out.print("> ");
+
+            String input = scan.nextLine().trim();
+            switch (input) {
+                case "n":
+                    if (page.size() == pageSize) {
+                        previous.push(after);
+                        after = idOf.applyAsLong(page.get(page.size() - 1));
+                    }
+                    break;
+                case "p":
+                    if (!previous.isEmpty()) {
+                        after = previous.pop();
+                    }
+                    break;
+                case "s":
+                    System.out.print("Input the start of what to search for, or leave blank to show everything\n> ");
+                    search = scan.nextLine().trim();
+                    after = 0;
+                    previous.clear();
+                    break;
+                default:
+                    if (!selectable || input.equals("c")) {
+                        return null;
+                    }
+                    try {
+                        return page.get(Integer.parseInt(input) - 1);
+                    } catch (Exception e) {
+                        System.out.println("Invalid Selection\n");
+                        return null;
+                    }
+            }
+        }
+    }
+}
@@ -33,6 +33,14 @@ public class RegistrationView {
     @Autowired
     private SignUpService signUpServ;
 
+    /** Lists long tables one page at a time */
+    @Autowired
+    private PagedPicker picker;
+
+    /** Finds members by phone number, email, or from the member list */
+    @Autowired
+    private MemberSelector memberSelector;
+
     /** Service to find store locations */
     @Autowired
     private StoreService storeServ;
@@ -149,20 +157,11 @@ public class RegistrationView {
      */
     public void cancelMembership(Scanner scan) {
         System.out.println();
-        List<Member> members = memberServ.viewMembers();
         System.out.println();
         System.out.println("Select the member whose membership shall be cancelled:");
         System.out.println();
-        int idx = 0;
-        for (Member member : members) {
-            System.out.printf("[%d] Member ID: %d, First Name: %s, Last Name: %s\n", idx, member.getId(), member.getFirstName(), member.getLastName());
-            idx++;
-        }
-        System.out.print("> ");
-        Member member = null;
-        try {
-            member = members.get(Integer.parseInt(scan.nextLine().trim()));
-        } catch (Exception e) {
+        Member member = memberSelector.select(scan, true);
+        if (member == null) {
             System.out.println("Invalid Member\n");
             return;
         }
@@ -173,18 +172,23 @@ public class RegistrationView {
     }
 
     /**
-     * Helper function that lists all members' IDs and First and Last names
-     * @param scan scanner to allow user input from the keyboard (kept for consistency)
+     * Helper function that lists all active members' IDs and First and Last names, one page at a time
+     * @param scan scanner to allow user input from the keyboard
      */
     public void listMembers(Scanner scan) {
         System.out.println();
-        int idx = 0;
-        List<Member> members = memberServ.viewMembers();
-        System.out.println();
-        for (Member member : members) {
-            System.out.printf("[%d] Member ID: %d, First Name: %s, Last Name: %s\n", idx, member.getId(), member.getFirstName(), member.getLastName());
-            idx++;
-        }
+        picker.list(scan,
+                (search, after, size) -> memberServ.listPage(search, after, size, true),
+                Member::getId, this::describe);
+    }
+
+    /**
+     * Helper function to describe a member in a listing
+     * @param member the member to describe
+     * @return the member's ID and first and last names
+     */
+    private String describe(Member member) {
+        return String.format("Member ID: %d, First Name: %s, Last Name: %s", member.getId(), member.getFirstName(), member.getLastName());
     }
 
     /**
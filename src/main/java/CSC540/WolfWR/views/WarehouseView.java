@@ -1,17 +1,21 @@
 package CSC540.WolfWR.views;
 
 import CSC540.WolfWR.WolfWRApp;
+import CSC540.WolfWR.services.InventoryService;
+import CSC540.WolfWR.services.InventoryTransferService;
 import CSC540.WolfWR.services.MerchandiseService;
 import CSC540.WolfWR.services.StoreService;
 import CSC540.WolfWR.services.TransactionService;
 import CSC540.WolfWR.services.SupplierService;
 import CSC540.WolfWR.models.Merchandise;
+import CSC540.WolfWR.models.StockTransfer;
 import CSC540.WolfWR.models.Store;
 import CSC540.WolfWR.models.Supplier;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
 import java.util.Scanner;
 import java.time.LocalDate;
 import java.util.List;
@@ -28,6 +32,18 @@ public class WarehouseView {
     @Autowired
     private MerchandiseService merchServ;
 
+    /** Changes stock safely while registers are selling the same merchandise */
+    @Autowired
+    private InventoryService inventoryServ;
+
+    /** Moves stock between stores */
+    @Autowired
+    private InventoryTransferService transferServ;
+
+    /** Lists long tables one page at a time */
+    @Autowired
+    private PagedPicker picker;
+
     /** Service to get all stores */
     @Autowired
     private StoreService storeServ;
@@ -72,7 +88,7 @@ public class WarehouseView {
 
         switch (input.trim()) {
             case "1":
-                viewAllInventory(merchServ.storeInventory(myStore), scan);
+                viewAllInventory(myStore, scan);
                 break;
             case "2":
                 transferInventory(myStore, scan);
@@ -103,11 +119,12 @@ public class WarehouseView {
 
     /**
      * Contains logic to move inventory between stores
-     * User will be prompted to select the store the inventory is being transferred to
+     * User will be prompted to select the store the inventory is being transferred to,
+     * then any number of products and how many units of each to move.
      *
-     * In the current implementation, inventory is transferred by moving full shipments between stores
-     * EX. If Store 1 is giving Store 2 apples from shipment A,
-     * Store 2 would receive all remaining apples from that shipment
+     * All products are moved together once the user is done selecting, or none are if any fails.
+     * Units are added to the recipient's merchandise of the same product, expiration date and prices,
+     * or to a new entry if it has none
      * @param myStore the store where the product is coming from
      * @param scan scanner to allow user input from the keyboard
      */
@@ -127,83 +144,69 @@ public class WarehouseView {
             System.out.println("Sender and recipient cannot be the same.");
             return;
         }
-        List<Merchandise> myInventory = merchServ.storeInventory(myStore);
-        List<Merchandise> otherInventory = merchServ.storeInventory(theirStore);
 
-        System.out.println("Select the merchandise to transfer:");
-        viewAllInventory(myInventory, scan);
-        System.out.print("> ");
-        Merchandise myMerch = null;
-        Merchandise theirMerch = null;
-        int transferAmt = 0;
-        try {
-            myMerch = myInventory.get(Integer.parseInt(scan.nextLine().trim()));
-        } catch (Exception e) {
-            System.out.println("Invalid Merchandise\n");
-            return;
-        }
-        for (Merchandise merch : otherInventory) {
-            if (myMerch.getProductName().equalsIgnoreCase(merch.getProductName())) {
-                theirMerch = merch;
-                break;
+        List<InventoryTransferService.TransferLine> lines = new ArrayList<>();
+        while (true) {
+            System.out.println("Select the merchandise to transfer:");
+            Merchandise myMerch = selectMerchandise(myStore, scan);
+            if (myMerch == null) {
+                System.out.println("Invalid Merchandise\n");
+                return;
             }
-        }
-        if (null != theirMerch) {
             System.out.println("Enter the quantity of merchandise to transfer:\n> ");
+            int transferAmt = 0;
             try {
                 transferAmt = Integer.parseInt(scan.nextLine().trim());
-                if (transferAmt == 0) {
-                    System.out.println("Cannot Transfer 0 Units of Merchandise\n");
-                    return;
-                } else if (myMerch.getQuantity() - transferAmt < 0) {
-                    System.out.println("Insufficient Amount of Merchandise to Transfer\n");
-                    return;
-                } else {
-                    myMerch.setQuantity(myMerch.getQuantity() - transferAmt);
-                    theirMerch.setQuantity(theirMerch.getQuantity() + transferAmt);
-                    System.out.println("Success!\n");
-                }
             } catch (Exception e) {
                 System.out.println("Invalid Quantity\n");
                 return;
             }
-        } else {
-            long newId = merchServ.generateID();
-            String name = myMerch.getProductName();
-            int quantity = transferAmt;
-            double buy = myMerch.getBuyPrice();
-            double market = myMerch.getMarketPrice();
-            LocalDate prod = myMerch.getProductionDate();
-            LocalDate exp = myMerch.getExpirationDate();
-            Supplier supplier = myMerch.getSupplier();
+            if (transferAmt <= 0) {
+                System.out.println("Cannot Transfer 0 Units of Merchandise\n");
+                return;
+            }
+            lines.add(new InventoryTransferService.TransferLine(myMerch.getProductID(), transferAmt));
 
-            theirMerch = new Merchandise();
-            theirMerch.setProductID(newId);
-            theirMerch.setProductName(name);
-            theirMerch.setQuantity(quantity);
-            theirMerch.setBuyPrice(buy);
-            theirMerch.setMarketPrice(market);
-            theirMerch.setProductionDate(prod);
-            theirMerch.setExpirationDate(exp);
-            theirMerch.setSupplier(supplier);
-            theirMerch.setStore(theirStore);
+            System.out.print("Transfer another product? (y/n)\n> ");
+            if (!scan.nextLine().trim().equalsIgnoreCase("y")) {
+                break;
+            }
+        }
 
-            merchServ.save(theirMerch);
+        try {
+            List<StockTransfer> moved = transferServ.transfer(myStore, theirStore, lines);
+            for (StockTransfer t : moved) {
+                System.out.printf("Moved %d %s to store %d\n", t.getQuantity(), t.getProductName(), t.getToStoreID());
+            }
             System.out.println("Success!\n");
+        } catch (IllegalStateException e) {
+            System.out.println("Insufficient Amount of Merchandise to Transfer\n");
+        } catch (IllegalArgumentException e) {
+            System.out.println("Invalid Merchandise\n");
         }
     }
 
     /**
-     * Helper method to list all merchandise
-     * @param inventory List of merchandise to display
+     * Helper method to list all merchandise in stock at a store, one page at a time
+     * @param store the store whose inventory is listed
      * @param scan scanner to allow user input from the keyboard
      */
-    public void viewAllInventory(List<Merchandise> inventory, Scanner scan) {
-        int idx = 0;
-        for (Merchandise merch : inventory) {
-            System.out.printf("[%d] %s\n", idx, merch.toString());
-            idx++;
-        }
+    public void viewAllInventory(Store store, Scanner scan) {
+        picker.list(scan,
+                (search, after, size) -> merchServ.storeInventoryPage(store, search, after, size),
+                Merchandise::getProductID, Merchandise::toString);
+    }
+
+    /**
+     * Helper method to select merchandise in stock at a store, one page at a time
+     * @param store the store whose inventory is listed
+     * @param scan scanner to allow user input from the keyboard
+     * @return the merchandise selected, or null if none was selected
+     */
+    private Merchandise selectMerchandise(Store store, Scanner scan) {
+        return picker.pick(scan,
+                (search, after, size) -> merchServ.storeInventoryPage(store, search, after, size),
+                Merchandise::getProductID, Merchandise::toString);
     }
 
     /**
@@ -214,13 +217,8 @@ public class WarehouseView {
      */
     public void processReturn(Store store, Scanner scan) {
         System.out.println("Select the merchandise being returned:");
-        List<Merchandise> inventory = merchServ.storeInventory(store);
-        viewAllInventory(inventory, scan);
-        System.out.print("> ");
-        Merchandise merch = null;
-        try {
-            merch = inventory.get(Integer.parseInt(scan.nextLine().trim()));
-        } catch (Exception e) {
+        Merchandise merch = selectMerchandise(store, scan);
+        if (merch == null) {
             System.out.println("Invalid Merchandise\n");
             return;
         }
@@ -233,8 +231,16 @@ public class WarehouseView {
             System.out.println("Invalid Quantity\n");
             return;
         }
-        merch.setQuantity(merch.getQuantity() + amt);
-        System.out.println("Success!\n");
+        if (amt <= 0) {
+            System.out.println("Invalid Quantity\n");
+            return;
+        }
+        try {
+            inventoryServ.adjust(merch.getProductID(), amt);
+            System.out.println("Success!\n");
+        } catch (IllegalStateException e) {
+            System.out.println("Unable to update inventory, please try again\n");
+        }
     }
 
     /**
@@ -261,13 +267,8 @@ public class WarehouseView {
             if (choice == 0) {
                 addMerchandise(store, scan);
             } else {
-                List<Merchandise> inventory = merchServ.storeInventory(store);
-                viewAllInventory(inventory, scan);
-                System.out.print("> ");
-                Merchandise merch = null;
-                try {
-                    merch = inventory.get(Integer.parseInt(scan.nextLine().trim()));
-                } catch (Exception e) {
+                Merchandise merch = selectMerchandise(store, scan);
+                if (merch == null) {
                     System.out.println("Invalid Merchandise\n");
                     return;
                 }
@@ -280,11 +281,15 @@ public class WarehouseView {
                     System.out.println("Invalid Quantity\n");
                     return;
                 }
-                if (add == 0) {
+                if (add <= 0) {
                     System.out.println("Invalid Quantity\n");
                     return;
                 }
-                merch.setQuantity(merch.getQuantity() + add);
+                LocalDate received = readDeliveryDate(scan);
+                if (received == null) {
+                    return;
+                }
+                merchServ.restock(merch, add, received);
                 System.out.println("Success!\n");
             }   
         }
@@ -306,6 +311,7 @@ public class WarehouseView {
         LocalDate prod = null;
         String edString = "";
         LocalDate exp = null;
+        LocalDate received = null;
         Supplier supplier = null;
         try {
             System.out.print("Please enter the name of the product being added: ");
@@ -327,6 +333,11 @@ public class WarehouseView {
             System.out.print("Please enter the expiration date of the product: ");
             edString = scan.nextLine().trim();
             exp = LocalDate.parse(edString, WolfWRApp.timeFormat);
+            System.out.println();
+            received = readDeliveryDate(scan);
+            if (received == null) {
+                return;
+            }
 
             System.out.println("Select the supplier from the following list:\n");
             List<Supplier> suppliers = supplServ.findAll();
@@ -353,11 +364,30 @@ public class WarehouseView {
             merch.setExpirationDate(exp);
             merch.setSupplier(supplier);
             merch.setStore(store);
-            merchServ.save(merch);
+            merchServ.receive(merch, received);
         } catch (Exception e) {
             System.out.println("Invalid Merchandise\n");
             return;
         }
         System.out.println("Success!\n");
     }
+
+    /**
+     * Helper method to ask for the day a delivery was received
+     * @param scan scanner to allow user input from the keyboard
+     * @return the date entered, today if nothing was entered, or null if the date was invalid
+     */
+    private LocalDate readDeliveryDate(Scanner scan) {
+        System.out.print("Please enter the date the delivery was received as mm-dd-yyyy, or press Enter for today: ");
+        String input = scan.nextLine().trim();
+        if (input.isEmpty()) {
+            return LocalDate.now();
+        }
+        try {
+            return LocalDate.parse(input, WolfWRApp.timeFormat);
+        } catch (Exception e) {
+            System.out.println("Invalid Date\n");
+            return null;
+        }
+    }
 }
@@ -0,0 +1,254 @@
+package CSC540.WolfWR;
+
+import CSC540.WolfWR.models.Member;
+import CSC540.WolfWR.models.Merchandise;
+import CSC540.WolfWR.models.Store;
+import CSC540.WolfWR.models.Transaction;
+import CSC540.WolfWR.models.TransactionItem;
+import CSC540.WolfWR.repositories.MerchandiseRepository;
+import CSC540.WolfWR.services.CheckoutService;
+import CSC540.WolfWR.services.InventoryService;
+import CSC540.WolfWR.services.InventoryTransferService;
+import CSC540.WolfWR.services.MemberService;
+import CSC540.WolfWR.services.MerchandiseService;
+import CSC540.WolfWR.services.StoreService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs checkouts, stock changes and transfers from several threads at once against the sample data,
+ * and checks that no unit is sold, reserved or moved twice.
+ * Uses its own in-memory database, since the purchases it makes would change what other tests count.
+ *
+ * @author Brandon Jiang
+ */
+@DataJpaTest(showSql = false, properties = {
+        "spring.datasource.url=jdbc:h2:mem:concurrency;MODE=MySQL;DATABASE_TO_LOWER=TRUE;"
+                + "NON_KEYWORDS=END,START,VALUE,MONTH,YEAR,DAY;DB_CLOSE_DELAY=-1",
+        "wolfwr.inventory.max-attempts=50"})
+@ContextConfiguration(classes = ServiceTestConfig.class)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class ConcurrencyTest {
+
+    /** The day every purchase is made, before any of the sample merchandise expires */
+    private static final LocalDate DATE = LocalDate.of(2024, 3, 1);
+
+    /** Number of threads run at once */
+    private static final int THREADS = 4;
+
+    /** Whether the sample data has been loaded, it is shared by every test in the class */
+    private static boolean loaded;
+
+    /** Loads the sample data */
+    @Autowired
+    private DataLoader loader;
+
+    /** Opens, fills and commits carts */
+    @Autowired
+    private CheckoutService checkout;
+
+    /** Adds and takes units of merchandise */
+    @Autowired
+    private InventoryService inventoryServ;
+
+    /** Moves stock between stores */
+    @Autowired
+    private InventoryTransferService transferServ;
+
+    /** Finds merchandise and how much of it is in stock */
+    @Autowired
+    private MerchandiseService merchServ;
+
+    /** Finds the merchandise a transfer created or added to */
+    @Autowired
+    private MerchandiseRepository merchRepo;
+
+    /** Finds the stores of the sample data */
+    @Autowired
+    private StoreService storeServ;
+
+    /** Finds the members of the sample data */
+    @Autowired
+    private MemberService memberServ;
+
+    /** The store every purchase is made at */
+    private Store store;
+
+    /** The member making every purchase */
+    private Member member;
+
+    /**
+     * Load the sample data once and find the store and member used by each test
+     */
+    @BeforeEach
+    public void setUp() {
+        if (!loaded) {
+            loader.loadData();
+            loaded = true;
+        }
+        store = storeServ.findByID(1002L);
+        member = memberServ.findByID(501L);
+    }
+
+    /**
+     * Committing the same cart twice at once, like a register submitting twice, buys the cart once
+     */
+    @Test
+    public void concurrentCommitsBuyOnce() throws Exception {
+        Merchandise merch = merchServ.findByID(303L);
+        int stock = merchServ.stockOf(303L);
+        CheckoutService.Cart cart = checkout.openCart(store, member, DATE);
+        assertTrue(checkout.addItem(cart.getCartID(), merch, 2));
+
+        List<Object> outcomes = race(() -> checkout.commit(cart.getCartID()));
+
+        assertEquals(1, outcomes.stream().filter(o -> o instanceof Transaction).count());
+        assertEquals(THREADS - 1, outcomes.stream().filter(o -> o instanceof IllegalArgumentException).count());
+        assertEquals(stock - 2, merchServ.stockOf(303L));
+        assertEquals(0, checkout.reservedQuantity(303L));
+        assertNull(checkout.getCart(cart.getCartID()));
+    }
+
+    /**
+     * Every unit added to a cart while it is being committed is either bought with the cart or refused,
+     * none is accepted and then silently dropped
+     */
+    @Test
+    public void addDuringCommitIsBoughtOrRefused() throws Exception {
+        Merchandise first = merchServ.findByID(304L);
+        Merchandise added = merchServ.findByID(306L);
+        int stock = merchServ.stockOf(306L);
+        CheckoutService.Cart cart = checkout.openCart(store, member, DATE);
+        assertTrue(checkout.addItem(cart.getCartID(), first, 1));
+
+        AtomicInteger accepted = new AtomicInteger();
+        CountDownLatch adding = new CountDownLatch(3);
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        Future<?> adder = pool.submit(() -> {
+            while (true) {
+                try {
+                    if (checkout.addItem(cart.getCartID(), added, 1)) {
+                        accepted.incrementAndGet();
+                    }
+                } catch (IllegalArgumentException e) {
+                    // The cart was committed
+                    return;
+                }
+                adding.countDown();
+            }
+        });
+        assertTrue(adding.await(10, TimeUnit.SECONDS));
+        Transaction t = checkout.commit(cart.getCartID());
+        adder.get(10, TimeUnit.SECONDS);
+        pool.shutdown();
+
+        int bought = t.getProductList().stream().filter(item -> item.getProductID() == 306L)
+                .mapToInt(TransactionItem::getQuantity).sum();
+        assertEquals(accepted.get(), bought);
+        assertEquals(stock - bought, merchServ.stockOf(306L));
+        assertEquals(0, checkout.reservedQuantity(306L));
+    }
+
+    /**
+     * Carts racing for the last units of a product never reserve more than is in stock
+     */
+    @Test
+    public void reservationsNeverExceedStock() throws Exception {
+        Merchandise merch = merchServ.findByID(307L);
+        int stock = merchServ.stockOf(307L);
+        List<CheckoutService.Cart> carts = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            carts.add(checkout.openCart(store, member, DATE));
+        }
+        AtomicInteger next = new AtomicInteger();
+
+        List<Object> outcomes = race(() -> checkout.addItem(carts.get(next.getAndIncrement()).getCartID(), merch, stock));
+
+        assertEquals(1, outcomes.stream().filter(Boolean.TRUE::equals).count());
+        assertEquals(stock, checkout.reservedQuantity(307L));
+        carts.forEach(cart -> checkout.cancel(cart.getCartID()));
+        assertEquals(0, checkout.reservedQuantity(307L));
+    }
+
+    /**
+     * Changes to the same merchandise entry at once are retried until every one is applied
+     */
+    @Test
+    public void concurrentAdjustmentsAllApply() throws Exception {
+        int stock = merchServ.stockOf(305L);
+
+        List<Object> outcomes = race(() -> inventoryServ.adjust(305L, 1));
+
+        outcomes.forEach(o -> assertInstanceOf(Merchandise.class, o));
+        assertEquals(stock + THREADS, merchServ.stockOf(305L));
+    }
+
+    /**
+     * Transfers from the same merchandise entry at once move every unit exactly once
+     */
+    @Test
+    public void concurrentTransfersMoveEachUnitOnce() throws Exception {
+        Store to = storeServ.findByID(1001L);
+        Merchandise source = merchServ.findByID(308L);
+        int stock = merchServ.stockOf(308L);
+        long sku = source.getProduct().getSku();
+
+        List<Object> outcomes = race(() -> transferServ.transfer(store, to, 308L, 1));
+
+        outcomes.forEach(o -> assertFalse(o instanceof Exception, () -> o.toString()));
+        assertEquals(stock - THREADS, merchServ.stockOf(308L));
+        int received = merchRepo.findByStoreAndSkus(1001L, Set.of(sku)).stream().mapToInt(Merchandise::getQuantity).sum();
+        assertEquals(THREADS, received);
+    }
+
+    /**
+     * Run the same task on several threads, all starting at once
+     * @param task the task to run
+     * @return what each thread returned, or the exception it threw
+     */
+    private static List<Object> race(Callable<?> task) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Object>> futures = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                try {
+                    return task.call();
+                } catch (RuntimeException e) {
+                    return e;
+                }
+            }));
+        }
+        start.countDown();
+        List<Object> outcomes = new ArrayList<>();
+        for (Future<Object> future : futures) {
+            outcomes.add(future.get(30, TimeUnit.SECONDS));
+        }
+        pool.shutdown();
+        return outcomes;
+    }
+}
@@ -0,0 +1,140 @@
+package CSC540.WolfWR;
+
+import CSC540.WolfWR.models.Member;
+import CSC540.WolfWR.models.Store;
+import CSC540.WolfWR.services.CheckoutService;
+import CSC540.WolfWR.services.LotIndex;
+import CSC540.WolfWR.services.MemberService;
+import CSC540.WolfWR.services.StoreService;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compares the default settings with the "perf" profile by loading the sample data and checking out purchases
+ * with each, every run on a fresh in-memory database.
+ * The in-memory database answers without any network latency, so times are printed for reference only.
+ * What is checked is the number of round trips to the database, which a MySQL server pays for one by one
+ *
+ * @author Brandon Jiang
+ */
+public class PerfProfileBenchmarkTest {
+
+    /** Number of purchases checked out in each run */
+    private static final int CHECKOUTS = 40;
+
+    /** Number of products bought in each purchase */
+    private static final int ITEMS = 5;
+
+    /**
+     * The perf profile sends the sample data and the purchases to the database in fewer round trips
+     */
+    @Test
+    public void perfProfileNeedsFewerRoundTrips() {
+        Run base = run("base", "test");
+        Run perf = run("perf", "test", "perf");
+
+        System.out.printf("%-8s %18s %12s %22s %14s\n", "Profile", "loadData trips", "loadData ms",
+                "Checkout trips (" + CHECKOUTS + ")", "Checkout ms");
+        for (Run r : List.of(base, perf)) {
+            System.out.printf("%-8s %18d %12.1f %22d %14.1f\n", r.name, r.loadTrips, r.loadNanos / 1e6,
+                    r.checkoutTrips, r.checkoutNanos / 1e6);
+        }
+
+        assertTrue(perf.loadTrips < base.loadTrips,
+                "loadData took " + perf.loadTrips + " round trips with perf, " + base.loadTrips + " without");
+        assertTrue(perf.checkoutTrips < base.checkoutTrips,
+                "Checkout took " + perf.checkoutTrips + " round trips with perf, " + base.checkoutTrips + " without");
+    }
+
+    /**
+     * Start the services with the given profiles, then time loading the sample data and checking out purchases
+     * @param name the name of the run, also used for its database
+     * @param profiles the profiles to activate
+     * @return the round trips and time each step took
+     */
+    private static Run run(String name, String... profiles) {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(BenchmarkConfig.class)
+                .web(WebApplicationType.NONE)
+                .profiles(profiles)
+                .properties("spring.datasource.url=jdbc:h2:mem:benchmark_" + name + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;"
+                                + "NON_KEYWORDS=END,START,VALUE,MONTH,YEAR,DAY;DB_CLOSE_DELAY=-1",
+                        "spring.jpa.properties.hibernate.session.events.auto=" + RoundTripCounter.class.getName())
+                .run()) {
+            Run r = new Run(name);
+
+            RoundTripCounter.clear();
+            long start = System.nanoTime();
+            context.getBean(DataLoader.class).loadData();
+            r.loadNanos = System.nanoTime() - start;
+            r.loadTrips = RoundTripCounter.getRoundTrips();
+
+            CheckoutService checkout = context.getBean(CheckoutService.class);
+            Store store = context.getBean(StoreService.class).findByID(1002L);
+            Member member = context.getBean(MemberService.class).findByID(501L);
+            LocalDate date = LocalDate.of(2024, 3, 1);
+            List<LotIndex.Lot> products = checkout.productsAt(store, date).subList(0, ITEMS);
+
+            RoundTripCounter.clear();
+            start = System.nanoTime();
+            for (int i = 0; i < CHECKOUTS; i++) {
+                CheckoutService.Cart cart = checkout.openCart(store, member, date);
+                for (LotIndex.Lot lot : products) {
+                    assertTrue(checkout.addProduct(cart.getCartID(), lot.getSku(), 1));
+                }
+                checkout.commit(cart.getCartID());
+            }
+            r.checkoutNanos = System.nanoTime() - start;
+            r.checkoutTrips = RoundTripCounter.getRoundTrips();
+            return r;
+        }
+    }
+
+    /**
+     * Run is what one run of the benchmark measured
+     */
+    private static class Run {
+
+        /** The name of the run */
+        private final String name;
+
+        /** Round trips taken to load the sample data */
+        private long loadTrips;
+
+        /** Time taken to load the sample data, in nanoseconds */
+        private long loadNanos;
+
+        /** Round trips taken by every checkout */
+        private long checkoutTrips;
+
+        /** Time taken by every checkout, in nanoseconds */
+        private long checkoutNanos;
+
+        /**
+         * Constructor for a run that has not measured anything yet
+         * @param name the name of the run
+         */
+        private Run(String name) {
+            this.name = name;
+        }
+    }
+
+    /**
+     * Spring configuration for the benchmark: the services and sample data loader as in the other tests,
+     * with the beans of the perf profile when it is active
+     */
+    @Configuration
+    @EnableAutoConfiguration
+    @Import({ServiceTestConfig.class, PerformanceConfig.class})
+    static class BenchmarkConfig {
+    }
+}
@@ -0,0 +1,43 @@
+package CSC540.WolfWR;
+
+import org.hibernate.SessionEventListener;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the statements and JDBC batches Hibernate sends to the database, each one a round trip.
+ * Registered with hibernate.session.events.auto, which creates one for every session
+ *
+ * @author Brandon Jiang
+ */
+public class RoundTripCounter implements SessionEventListener {
+
+    /** Statements run one at a time since the last clear, shared by every session */
+    private static final AtomicLong statements = new AtomicLong();
+
+    /** JDBC batches run since the last clear, shared by every session */
+    private static final AtomicLong batches = new AtomicLong();
+
+    /** Count a statement run on its own */
+    @Override
+    public void jdbcExecuteStatementEnd() {
+        statements.incrementAndGet();
+    }
+
+    /** Count a batch of statements sent together */
+    @Override
+    public void jdbcExecuteBatchEnd() {
+        batches.incrementAndGet();
+    }
+
+    /** Start counting from zero */
+    public static void clear() {
+        statements.set(0);
+        batches.set(0);
+    }
+
+    /** Get the number of round trips since the last clear, statements run on their own plus batches */
+    public static long getRoundTrips() {
+        return statements.get() + batches.get();
+    }
+}
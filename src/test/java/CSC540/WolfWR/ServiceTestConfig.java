@@ -0,0 +1,20 @@
+package CSC540.WolfWR;
+
+import CSC540.WolfWR.services.Services;
+import org.springframework.boot.autoconfigure.AutoConfigurationPackage;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+
+/**
+ * Spring configuration for tests of the services. Loads the entities, repositories, services and the
+ * sample data loader, but not WolfWRApp or the views, which wait for input on the console.
+ *
+ * @author Brandon Jiang
+ */
+@Configuration
+@AutoConfigurationPackage
+@ComponentScan(basePackageClasses = Services.class)
+@Import(DataLoader.class)
+public class ServiceTestConfig {
+}
@@ -0,0 +1,182 @@
+package CSC540.WolfWR;
+
+import CSC540.WolfWR.models.Member;
+import CSC540.WolfWR.models.Merchandise;
+import CSC540.WolfWR.models.Store;
+import CSC540.WolfWR.models.Transaction;
+import CSC540.WolfWR.services.CheckoutService;
+import CSC540.WolfWR.services.LotIndex;
+import CSC540.WolfWR.services.MemberService;
+import CSC540.WolfWR.services.MerchandiseService;
+import CSC540.WolfWR.services.StoreService;
+import CSC540.WolfWR.services.TransactionService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Hibernate;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks the number of SQL statements each screen runs against the sample data, so a lazy association
+ * read one row at a time shows up as a failure instead of a slow screen.
+ * Statements are counted by Hibernate, so the batched stock updates run through JDBC are not included.
+ *
+ * @author Brandon Jiang
+ */
+@DataJpaTest(showSql = false)
+@ContextConfiguration(classes = ServiceTestConfig.class)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class StatementCountTest {
+
+    /** Whether the sample data has been loaded, it is shared by every test in the class */
+    private static boolean loaded;
+
+    /** Loads the sample data */
+    @Autowired
+    private DataLoader loader;
+
+    /** Reads purchase history and prints sales reports */
+    @Autowired
+    private TransactionService transServ;
+
+    /** Lists the warehouse inventory */
+    @Autowired
+    private MerchandiseService merchServ;
+
+    /** Opens, fills and commits carts */
+    @Autowired
+    private CheckoutService checkout;
+
+    /** Finds the stores of the sample data */
+    @Autowired
+    private StoreService storeServ;
+
+    /** Finds the members of the sample data */
+    @Autowired
+    private MemberService memberServ;
+
+    /** Gives access to the statement counts kept by Hibernate */
+    @Autowired
+    private EntityManagerFactory emf;
+
+    /** Statements run since the last clear */
+    private Statistics stats;
+
+    /**
+     * Load the sample data once and start counting from zero
+     */
+    @BeforeEach
+    public void setUp() {
+        if (!loaded) {
+            loader.loadData();
+            loaded = true;
+        }
+        stats = emf.unwrap(SessionFactory.class).getStatistics();
+        stats.clear();
+    }
+
+    /**
+     * A member's purchase history is one query, with each transaction's store loaded by it
+     */
+    @Test
+    public void historyIsOneStatement() {
+        Member member = memberServ.findByID(502L);
+        stats.clear();
+
+        List<Transaction> history = transServ.getHistoryByCustomer(member);
+
+        assertEquals(3, history.size());
+        history.forEach(t -> assertTrue(Hibernate.isInitialized(t.getStore())));
+        assertEquals(1, stats.getPrepareStatementCount());
+    }
+
+    /**
+     * A page of the warehouse inventory listing is one query, including the supplier and store printed for each entry
+     */
+    @Test
+    public void inventoryListingIsOneStatement() {
+        Store store = storeServ.findByID(1002L);
+        stats.clear();
+
+        List<Merchandise> page = merchServ.storeInventoryPage(store, "", 0, 20);
+        page.forEach(Merchandise::toString);
+
+        assertFalse(page.isEmpty());
+        assertEquals(1, stats.getPrepareStatementCount());
+    }
+
+    /**
+     * A daily or itemized sales report is one query for the rows and one for the summary,
+     * however many transactions it covers
+     */
+    @Test
+    public void reportIsTwoStatements() {
+        Store store = storeServ.findByID(1002L);
+        stats.clear();
+
+        transServ.generateGlobalSalesReport("day", LocalDate.of(2024, 2, 10), "daily");
+        assertEquals(2, stats.getPrepareStatementCount());
+        stats.clear();
+
+        transServ.generateGlobalSalesReport("year", LocalDate.of(2024, 1, 1), "daily");
+        assertEquals(2, stats.getPrepareStatementCount());
+        stats.clear();
+
+        transServ.generateGlobalSalesReport("year", LocalDate.of(2024, 1, 1), "itemized");
+        assertEquals(2, stats.getPrepareStatementCount());
+        stats.clear();
+
+        transServ.generateStoreSalesReport("year", LocalDate.of(2024, 1, 1), store, "itemized");
+        assertEquals(2, stats.getPrepareStatementCount());
+    }
+
+    /**
+     * Checking out reads nothing per item, each item only adds the insert that saves it
+     */
+    @Test
+    public void checkoutRunsOneInsertPerItem() {
+        Store store = storeServ.findByID(1002L);
+        Member member = memberServ.findByID(501L);
+        List<LotIndex.Lot> products = checkout.productsAt(store, LocalDate.of(2024, 3, 1));
+        assertTrue(products.size() >= 3);
+
+        // The first purchase also reserves a block of transaction IDs
+        checkoutStatements(store, member, products.subList(0, 1));
+        long oneItem = checkoutStatements(store, member, products.subList(0, 1));
+        long threeItems = checkoutStatements(store, member, products.subList(0, 3));
+
+        assertEquals(oneItem + 2, threeItems);
+    }
+
+    /**
+     * Buy one unit of each product given and count the statements the checkout ran
+     * @param store the store to buy at
+     * @param member the member buying
+     * @param products the products to buy
+     * @return the number of statements prepared while checking out
+     */
+    private long checkoutStatements(Store store, Member member, List<LotIndex.Lot> products) {
+        CheckoutService.Cart cart = checkout.openCart(store, member, LocalDate.of(2024, 3, 1));
+        for (LotIndex.Lot lot : products) {
+            assertTrue(checkout.addProduct(cart.getCartID(), lot.getSku(), 1));
+        }
+        stats.clear();
+        checkout.commit(cart.getCartID());
+        return stats.getPrepareStatementCount();
+    }
+}
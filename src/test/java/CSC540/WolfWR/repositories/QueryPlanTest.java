@@ -0,0 +1,194 @@
+package CSC540.WolfWR.repositories;
+
+import CSC540.WolfWR.DataLoader;
+import CSC540.WolfWR.ServiceTestConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that the database answers every filtered query of the Transaction, Merchandise and Staff
+ * repositories from an index instead of reading the whole table. Each query is run against the sample data,
+ * the SQL Hibernate generated for it is recorded, and the plan H2 picks for that SQL must not contain a table scan.
+ * Queries meant to read a whole table, such as the highest ID or loading the discount index, are not checked,
+ * which leaves nothing to check in the Discount repository.
+ * Uses its own in-memory database, since it loads the sample data into a context of its own.
+ *
+ * @author Brandon Jiang
+ */
+@DataJpaTest(showSql = false, properties = {
+        "spring.datasource.url=jdbc:h2:mem:queryplan;MODE=MySQL;DATABASE_TO_LOWER=TRUE;"
+                + "NON_KEYWORDS=END,START,VALUE,MONTH,YEAR,DAY;DB_CLOSE_DELAY=-1",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=CSC540.WolfWR.repositories.RecordingStatementInspector"})
+@ContextConfiguration(classes = ServiceTestConfig.class)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class QueryPlanTest {
+
+    /** Whether the sample data has been loaded, it is shared by every test in the class */
+    private static boolean loaded;
+
+    /** Any day covered by the sample transactions */
+    private static final LocalDate DAY = LocalDate.of(2024, 9, 12);
+
+    @Autowired
+    private DataLoader loader;
+
+    @Autowired
+    private TransactionRepository transRepo;
+
+    @Autowired
+    private MerchandiseRepository merchRepo;
+
+    @Autowired
+    private StaffRepository staffRepo;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private PlatformTransactionManager txManager;
+
+    /**
+     * Load the sample data once
+     */
+    @BeforeEach
+    public void setUp() {
+        if (!loaded) {
+            loader.loadData();
+            loaded = true;
+        }
+    }
+
+    /**
+     * Purchase history and the sales reports read transactions through the member, store and date indexes
+     */
+    @Test
+    public void transactionQueriesUseIndexes() {
+        List<String> sql = record(() -> {
+            transRepo.getHistoryByCustomer(502L);
+            transRepo.summarizeStoreSales(DAY, DAY.plusDays(1), 1002L);
+            transRepo.summarizeSales(DAY, DAY.plusDays(1));
+            stream(() -> transRepo.summarizeStoreSalesByDay(DAY, DAY.plusDays(1), 1002L));
+            stream(() -> transRepo.summarizeSalesByStoreAndDay(DAY, DAY.plusDays(1)));
+            stream(() -> transRepo.listStoreSales(DAY, DAY.plusDays(1), 1002L));
+            stream(() -> transRepo.listSales(DAY, DAY.plusDays(1)));
+        });
+        assertEquals(7, sql.size());
+        assertNoTableScans(sql);
+    }
+
+    /**
+     * Store inventory, stock lookups and the expiry sweep read merchandise through the store, SKU,
+     * expiration date and primary key indexes
+     */
+    @Test
+    public void merchandiseQueriesUseIndexes() {
+        List<String> sql = record(() -> {
+            merchRepo.storeInventory(1002L);
+            merchRepo.quantityOf(301L);
+            merchRepo.findByStoreAndSkus(1002L, Set.of(1L, 2L));
+            merchRepo.storeInventoryPage(1002L, 0, Limit.of(20));
+            merchRepo.searchStoreInventoryPage(1002L, "A%", 0, Limit.of(20));
+            merchRepo.expiringPage(DAY.plusDays(3), DAY, 0, Limit.of(500));
+        });
+        assertEquals(6, sql.size());
+        assertNoTableScans(sql);
+    }
+
+    /**
+     * Cashier lookups and staff listings read staff through the store and title index
+     */
+    @Test
+    public void staffQueriesUseIndexes() {
+        List<String> sql = record(() -> {
+            staffRepo.findCashier(1002L, 0);
+            staffRepo.findByStore(1002L);
+            staffRepo.findPageByStore(1002L, 0, Limit.of(20));
+            staffRepo.searchPageByStore(1002L, "A%", 0, Limit.of(20));
+        });
+        assertEquals(4, sql.size());
+        assertNoTableScans(sql);
+    }
+
+    /**
+     * Run repository calls and collect the SQL they prepared
+     * @param queries the repository calls to run
+     * @return the SQL of each statement, in order
+     */
+    private List<String> record(Runnable queries) {
+        RecordingStatementInspector.clear();
+        queries.run();
+        return RecordingStatementInspector.getStatements();
+    }
+
+    /**
+     * Read every row of a report stream, in a transaction as the services do
+     * @param query opens the stream
+     */
+    private void stream(Supplier<Stream<?>> query) {
+        new TransactionTemplate(txManager).executeWithoutResult(status -> {
+            try (Stream<?> rows = query.get()) {
+                rows.forEach(row -> { });
+            }
+        });
+    }
+
+    /**
+     * Fail if H2 would read any table in full to run any of the statements
+     * @param statements the SQL to explain, with ? for each parameter
+     */
+    private void assertNoTableScans(List<String> statements) {
+        List<String> scans = new ArrayList<>();
+        for (String sql : statements) {
+            String plan = explain(sql);
+            if (plan.contains(".tableScan")) {
+                scans.add(plan);
+            }
+        }
+        assertTrue(scans.isEmpty(), "Queries reading a whole table:\n" + String.join("\n\n", scans));
+    }
+
+    /**
+     * Get the plan H2 picks for a statement. Parameters are left NULL, since the plan does not depend on them
+     * @param sql the SQL to explain
+     * @return the plan, with a comment naming the index or scan used for each table
+     */
+    private String explain(String sql) {
+        return jdbc.execute((Connection con) -> {
+            try (PreparedStatement ps = con.prepareStatement("EXPLAIN " + sql)) {
+                int params = ps.getParameterMetaData().getParameterCount();
+                for (int i = 1; i <= params; i++) {
+                    ps.setObject(i, null);
+                }
+                try (ResultSet rs = ps.executeQuery()) {
+                    rs.next();
+                    return rs.getString(1);
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,35 @@
+package CSC540.WolfWR.repositories;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Remembers every SQL statement Hibernate prepares, so tests can look at the plan the database picks for it.
+ * Registered with hibernate.session_factory.statement_inspector, which creates it by name
+ *
+ * @author Brandon Jiang
+ */
+public class RecordingStatementInspector implements StatementInspector {
+
+    /** Statements prepared since the last clear, shared by every instance */
+    private static final List<String> statements = new CopyOnWriteArrayList<>();
+
+    /** Record a statement and run it unchanged */
+    @Override
+    public String inspect(String sql) {
+        statements.add(sql);
+        return sql;
+    }
+
+    /** Forget the statements recorded so far */
+    public static void clear() {
+        statements.clear();
+    }
+
+    /** Get the statements recorded since the last clear, in the order they were prepared */
+    public static List<String> getStatements() {
+        return List.copyOf(statements);
+    }
+}
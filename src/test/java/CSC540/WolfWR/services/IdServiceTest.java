@@ -0,0 +1,62 @@
+package CSC540.WolfWR.services;
+
+import CSC540.WolfWR.ServiceTestConfig;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that IDs handed out one at a time and ranges reserved for statements that insert many rows
+ * never overlap, so rows inserted both ways can never take the same ID
+ *
+ * @author Brandon Jiang
+ */
+@DataJpaTest(showSql = false)
+@ContextConfiguration(classes = ServiceTestConfig.class)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class IdServiceTest {
+
+    /** Hands out the IDs being checked */
+    @Autowired
+    private IdService idServ;
+
+    /**
+     * A range reserved while a block is being handed out comes after the block, and the next block after the range
+     */
+    @Test
+    public void rangesNeverOverlapBlocks() {
+        Set<Long> ids = new HashSet<>();
+        assertEquals(101, idServ.nextID("range_test", () -> 100));
+        ids.add(101L);
+
+        long first = idServ.reserveRange("range_test", 10, () -> 100);
+        for (long id = first; id < first + 10; id++) {
+            assertTrue(ids.add(id));
+        }
+        // Enough to use up the block held in memory and reserve the next one
+        for (int i = 0; i < 100; i++) {
+            assertTrue(ids.add(idServ.nextID("range_test", () -> 100)));
+        }
+    }
+
+    /**
+     * The first range of a new sequence starts past the highest ID already in the table
+     */
+    @Test
+    public void firstRangeStartsPastCurrentMax() {
+        assertEquals(501, idServ.reserveRange("new_range_test", 5, () -> 500));
+        assertEquals(506, idServ.reserveRange("new_range_test", 5, () -> 500));
+    }
+}
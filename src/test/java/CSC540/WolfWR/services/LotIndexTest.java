@@ -0,0 +1,91 @@
+package CSC540.WolfWR.services;
+
+import CSC540.WolfWR.models.Merchandise;
+import CSC540.WolfWR.models.Product;
+import CSC540.WolfWR.models.Store;
+import CSC540.WolfWR.models.Supplier;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that the lots picked at checkout are the ones expiring first that can still be sold,
+ * so stock that expired before the day of the sale is never taken
+ *
+ * @author Brandon Jiang
+ */
+public class LotIndexTest {
+
+    /** The day of the sale */
+    private static final LocalDate SALE_DATE = LocalDate.of(2024, 3, 1);
+
+    /** The store every lot is at */
+    private static final long STORE_ID = 1001;
+
+    /** Index holding the lots of the store */
+    private LotIndex index;
+
+    /**
+     * Load a store with two lots of apples, one expired the day before the sale and one expiring on the day,
+     * a later lot of apples, and bread with only an expired lot
+     */
+    @BeforeEach
+    public void setUp() {
+        Store store = new Store(STORE_ID, "919-555-0101", "1 Main St", null);
+        Product apples = new Product(1, "Apples", new Supplier());
+        Product bread = new Product(2, "Bread", new Supplier());
+        index = new LotIndex();
+        index.load(STORE_ID, List.of(
+                lot(301, apples, store, SALE_DATE.minusDays(1)),
+                lot(302, apples, store, SALE_DATE),
+                lot(303, apples, store, SALE_DATE.plusDays(10)),
+                lot(304, bread, store, SALE_DATE.minusDays(5))));
+    }
+
+    /**
+     * A product's lots leave out the one that expired before the sale and keep the one expiring on the day
+     */
+    @Test
+    public void lotsSkipExpiredStock() {
+        List<LotIndex.Lot> lots = index.lots(STORE_ID, 1, SALE_DATE);
+
+        assertEquals(List.of(302L, 303L), lots.stream().map(LotIndex.Lot::getProductID).toList());
+        assertTrue(index.lots(STORE_ID, 2, SALE_DATE).isEmpty());
+    }
+
+    /**
+     * The products for sale are each shown with their first lot that has not expired,
+     * and products with only expired stock are not shown
+     */
+    @Test
+    public void productsSkipExpiredStock() {
+        List<LotIndex.Lot> products = index.products(STORE_ID, SALE_DATE);
+
+        assertEquals(1, products.size());
+        assertEquals(302L, products.get(0).getProductID());
+        assertEquals(2, index.products(STORE_ID, SALE_DATE.minusDays(5)).size());
+    }
+
+    /**
+     * Make a merchandise entry with ten units in stock
+     * @param productID the ID of the entry
+     * @param product the catalog entry it is stock of
+     * @param store the store holding it
+     * @param expirationDate the day it can no longer be sold
+     * @return the entry
+     */
+    private static Merchandise lot(long productID, Product product, Store store, LocalDate expirationDate) {
+        Merchandise merch = new Merchandise();
+        merch.setProductID(productID);
+        merch.setProductName(product.getProductName());
+        merch.setQuantity(10);
+        merch.setExpirationDate(expirationDate);
+        merch.setProduct(product);
+        merch.setStore(store);
+        return merch;
+    }
+}